@@ -0,0 +1,140 @@
+package com.md.sign;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+
+/**
+ * Collects submitted items into batches and hands each batch to a handler.
+ * <p>
+ * A batch is flushed when it reaches the maximum size, on the submitting
+ * thread, or when the batch window has elapsed since its first item, on the
+ * collector's timer thread. With a window of zero or a batch size of one every
+ * item is handled on its own, directly on the submitting thread.
+ *
+ * @param <T> the submitted item type
+ * @param <R> the per-item result type
+ */
+public class BatchCollector<T, R> implements AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(BatchCollector.class);
+
+    /**
+     * Handles one batch. Must return exactly one result per item, in order.
+     */
+    @FunctionalInterface
+    public interface BatchHandler<T, R> {
+        List<R> handle(List<T> items) throws Exception;
+    }
+
+    private record Pending<T, R>(T item, CompletableFuture<R> result) {
+    }
+
+    private final String name;
+    private final int maxBatchSize;
+    private final long windowMillis;
+    private final BatchHandler<T, R> handler;
+    private final ScheduledExecutorService timer;
+
+    private List<Pending<T, R>> pending = new ArrayList<>();
+    private ScheduledFuture<?> scheduledFlush;
+
+    public BatchCollector(String name, int maxBatchSize, long windowMillis, BatchHandler<T, R> handler) {
+        if (maxBatchSize < 1) {
+            throw new IllegalArgumentException("Batch size must be at least 1");
+        }
+        this.name = name;
+        this.maxBatchSize = maxBatchSize;
+        this.windowMillis = Math.max(0, windowMillis);
+        this.handler = handler;
+        this.timer = isBatching() ? Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name + "-batch");
+            thread.setDaemon(true);
+            return thread;
+        }) : null;
+    }
+
+    public boolean isBatching() {
+        return maxBatchSize > 1 && windowMillis > 0;
+    }
+
+    /**
+     * Adds an item to the current batch.
+     *
+     * @return a future completed with the item's result once its batch has been handled
+     */
+    public CompletableFuture<R> submit(T item) {
+        Pending<T, R> entry = new Pending<>(item, new CompletableFuture<>());
+        if (!isBatching()) {
+            flush(List.of(entry));
+            return entry.result();
+        }
+
+        List<Pending<T, R>> full = null;
+        synchronized (this) {
+            pending.add(entry);
+            if (pending.size() >= maxBatchSize) {
+                full = takePending();
+            } else if (scheduledFlush == null) {
+                scheduledFlush = timer.schedule(this::flushPending, windowMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+        if (full != null) {
+            flush(full);
+        }
+        return entry.result();
+    }
+
+    @Override
+    public void close() {
+        if (timer != null) {
+            timer.shutdown();
+            flushPending();
+        }
+    }
+
+    private void flushPending() {
+        List<Pending<T, R>> batch;
+        synchronized (this) {
+            batch = takePending();
+        }
+        if (!batch.isEmpty()) {
+            flush(batch);
+        }
+    }
+
+    private List<Pending<T, R>> takePending() {
+        List<Pending<T, R>> batch = pending;
+        pending = new ArrayList<>();
+        if (scheduledFlush != null) {
+            scheduledFlush.cancel(false);
+            scheduledFlush = null;
+        }
+        return batch;
+    }
+
+    private void flush(List<Pending<T, R>> batch) {
+        try {
+            List<T> items = new ArrayList<>(batch.size());
+            for (Pending<T, R> entry : batch) {
+                items.add(entry.item());
+            }
+            List<R> results = handler.handle(items);
+            if (results.size() != batch.size()) {
+                throw new IllegalStateException("Batch handler returned " + results.size() +
+                        " results for " + batch.size() + " items");
+            }
+            for (int i = 0; i < batch.size(); i++) {
+                batch.get(i).result().complete(results.get(i));
+            }
+        } catch (Exception e) {
+            logger.error("Failed to process {} batch of {} items", name, batch.size(), e);
+            for (Pending<T, R> entry : batch) {
+                entry.result().completeExceptionally(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package com.md.sign;
+
+/**
+ * Remote tier of the {@link TieredCache}, shared by all replicas of the service.
+ * <p>
+ * Besides entries, the backend holds a generation number. Advancing it
+ * invalidates every cached entry on all replicas, since entries are stored
+ * under the generation they were computed in.
+ */
+public interface CacheBackend {
+
+    /**
+     * Returns the value stored under the key, or null if it is missing or has expired.
+     */
+    byte[] get(String key);
+
+    void put(String key, byte[] value, long expiresAtMillis);
+
+    long generation();
+
+    /**
+     * Advances the generation and returns the new value.
+     */
+    long advanceGeneration();
+
+    /**
+     * A backend that stores nothing, leaving only the in-process near cache.
+     */
+    static CacheBackend none() {
+        return new CacheBackend() {
+            @Override
+            public byte[] get(String key) {
+                return null;
+            }
+
+            @Override
+            public void put(String key, byte[] value, long expiresAtMillis) {
+            }
+
+            @Override
+            public long generation() {
+                return 0;
+            }
+
+            @Override
+            public long advanceGeneration() {
+                return 0;
+            }
+        };
+    }
+}
@@ -0,0 +1,66 @@
+package com.md.sign;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.cms.CMSObjectIdentifiers;
+import org.bouncycastle.cms.CMSTypedData;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.Arrays;
+
+/**
+ * Canonical UTF-8 form of document content together with its SHA-256 digest.
+ * The bytes live in a buffer that may be larger than the content.
+ */
+public final class CanonicalContent {
+
+    private final Canonicalization canonicalization;
+    private final byte[] buffer;
+    private final int length;
+    private final byte[] digest;
+
+    CanonicalContent(Canonicalization canonicalization, byte[] buffer, int length, byte[] digest) {
+        this.canonicalization = canonicalization;
+        this.buffer = buffer;
+        this.length = length;
+        this.digest = digest;
+    }
+
+    public Canonicalization canonicalization() {
+        return canonicalization;
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public byte[] digest() {
+        return digest.clone();
+    }
+
+    public byte[] toByteArray() {
+        return Arrays.copyOf(buffer, length);
+    }
+
+    /**
+     * Exposes the content as CMS data without copying the buffer.
+     */
+    public CMSTypedData toCMSTypedData() {
+        return new CMSTypedData() {
+            @Override
+            public ASN1ObjectIdentifier getContentType() {
+                return CMSObjectIdentifiers.data;
+            }
+
+            @Override
+            public void write(OutputStream out) throws IOException {
+                out.write(buffer, 0, length);
+            }
+
+            @Override
+            public Object getContent() {
+                return toByteArray();
+            }
+        };
+    }
+}
@@ -0,0 +1,71 @@
+package com.md.sign;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Describes how document content is normalized before it is signed or verified.
+ * <p>
+ * Leading and trailing whitespace of the whole content is always removed, as
+ * before canonicalization was configurable. On top of that, line endings can be
+ * normalized to LF, trailing whitespace can be stripped from every line and the
+ * text can be brought into Unicode NFC.
+ * <p>
+ * The identifier is stored with each signature, e.g. {@code md-c14n-v1:eol+nfc},
+ * and bound to it as a signed CMS attribute, so verification rejects a front
+ * matter identifier that differs from the signed one. Signatures without one
+ * were made with {@link #LEGACY}.
+ */
+public record Canonicalization(boolean normalizeLineEndings, boolean stripTrailingWhitespace, boolean nfc) {
+
+    public static final Canonicalization LEGACY = new Canonicalization(false, false, false);
+
+    private static final String VERSION = "md-c14n-v1";
+    private static final String LINE_ENDINGS = "eol";
+    private static final String TRAILING_WHITESPACE = "ws";
+    private static final String NFC = "nfc";
+
+    /**
+     * Returns the identifier stored in signatures, or null for {@link #LEGACY}.
+     */
+    public String id() {
+        List<String> steps = new ArrayList<>();
+        if (normalizeLineEndings) {
+            steps.add(LINE_ENDINGS);
+        }
+        if (stripTrailingWhitespace) {
+            steps.add(TRAILING_WHITESPACE);
+        }
+        if (nfc) {
+            steps.add(NFC);
+        }
+        return steps.isEmpty() ? null : VERSION + ":" + String.join("+", steps);
+    }
+
+    /**
+     * Parses a canonicalization identifier.
+     *
+     * @param id the identifier, or null for {@link #LEGACY}
+     * @throws IllegalArgumentException if the version or a step is unknown
+     */
+    public static Canonicalization fromId(String id) {
+        if (id == null || id.isBlank() || id.equals(VERSION)) {
+            return LEGACY;
+        }
+        if (!id.startsWith(VERSION + ":")) {
+            throw new IllegalArgumentException("Unsupported canonicalization: " + id);
+        }
+        boolean lineEndings = false;
+        boolean trailingWhitespace = false;
+        boolean nfc = false;
+        for (String step : id.substring(VERSION.length() + 1).split("\\+")) {
+            switch (step) {
+                case LINE_ENDINGS -> lineEndings = true;
+                case TRAILING_WHITESPACE -> trailingWhitespace = true;
+                case NFC -> nfc = true;
+                default -> throw new IllegalArgumentException("Unsupported canonicalization step: " + step);
+            }
+        }
+        return new Canonicalization(lineEndings, trailingWhitespace, nfc);
+    }
+}
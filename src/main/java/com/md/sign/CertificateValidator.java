@@ -1,32 +1,86 @@
 package com.md.sign;
 
+import org.bouncycastle.asn1.x509.AuthorityKeyIdentifier;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.SubjectKeyIdentifier;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.util.Store;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Service;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.Resource;
 import org.springframework.core.io.ResourceLoader;
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
 import java.security.KeyStore;
 import java.security.cert.*;
 import java.util.*;
 
+/**
+ * Validates signer certificates against the configured truststore.
+ * <p>
+ * Trust anchors are indexed by subject DN and subject key identifier. A chain
+ * is built upwards from the leaf, following authority key identifiers through
+ * the intermediates supplied with the signature until a trust anchor issues
+ * the current certificate. PKIX validation then runs against that one anchor,
+ * so the cost depends on the chain length, not on the truststore size.
+ * Validated leaf certificates are cached in the {@link TieredCache}, shared
+ * with other replicas, until the first certificate of their path expires.
+ * Reloading the truststore invalidates the cache on all replicas.
+ */
 @Service
 public class CertificateValidator {
 
     private static final Logger logger = LoggerFactory.getLogger(CertificateValidator.class);
 
-    private final Set<TrustAnchor> trustAnchors;
+    private static final int MAX_PATH_LENGTH = 16;
+
+    private record ValidatedPath(TrustAnchor anchor, List<X509Certificate> path, long validUntil) {
+    }
+
+    /**
+     * Trust anchors with their indexes, replaced as a whole when the truststore is reloaded.
+     */
+    private record TrustAnchors(Set<TrustAnchor> anchors, CertificateIndex index,
+                                Map<X509Certificate, TrustAnchor> byCertificate) {
+
+        static TrustAnchors of(Set<TrustAnchor> anchors) {
+            Map<X509Certificate, TrustAnchor> byCertificate = new HashMap<>();
+            for (TrustAnchor anchor : anchors) {
+                byCertificate.put(anchor.getTrustedCert(), anchor);
+            }
+            return new TrustAnchors(Collections.unmodifiableSet(anchors),
+                    new CertificateIndex(byCertificate.keySet()), byCertificate);
+        }
+    }
+
+    private final ResourceLoader resourceLoader;
+    private final String truststorePath;
+    private final String truststorePassword;
+    private final TieredCache cache;
     private final CertPathValidator validator;
     private final CertificateFactory certFactory;
+    private final TieredCache.Region<Long> validatedLeaves;
+    private volatile TrustAnchors trustAnchors;
 
     @Value("${signature.cert.validity.days:30}")
     private int certValidityDays;
 
     public CertificateValidator(ResourceLoader resourceLoader,
                                 @Value("${signature.truststore.path:classpath:truststore.jks}") String truststorePath,
-                                @Value("${signature.truststore.password:changeit}") String truststorePassword) {
+                                @Value("${signature.truststore.password:changeit}") String truststorePassword,
+                                @Value("${signature.cert.path.cache.size:1024}") int pathCacheSize,
+                                TieredCache cache) {
         try {
+            this.resourceLoader = resourceLoader;
+            this.truststorePath = truststorePath;
+            this.truststorePassword = truststorePassword;
+            this.cache = cache;
             this.validator = CertPathValidator.getInstance("PKIX");
             this.certFactory = CertificateFactory.getInstance("X.509");
 
@@ -38,7 +92,15 @@ public class CertificateValidator {
                 logger.warn("Could not load truststore, proceeding with empty trust anchors: {}", e.getMessage());
                 loadedAnchors = new HashSet<>();
             }
-            this.trustAnchors = Collections.unmodifiableSet(loadedAnchors);
+            this.trustAnchors = TrustAnchors.of(loadedAnchors);
+            if (loadedAnchors.isEmpty()) {
+                logger.warn("No trust anchors configured, performing basic certificate validation only");
+            }
+
+            this.validatedLeaves = cache.region("cert-path", pathCacheSize,
+                    validUntil -> ByteBuffer.allocate(Long.BYTES).putLong(validUntil).array(),
+                    bytes -> ByteBuffer.wrap(bytes).getLong());
+            cache.addInvalidationListener(this::reloadAfterInvalidation);
 
         } catch (Exception e) {
             logger.error("Failed to initialize CertificateValidator", e);
@@ -46,6 +108,32 @@ public class CertificateValidator {
         }
     }
 
+    /**
+     * Reloads the trust anchors from the truststore and invalidates the cached
+     * validations and verification results on every replica sharing the cache.
+     * The current anchors are kept if the truststore cannot be loaded or is empty.
+     *
+     * @return the number of trust anchors loaded
+     */
+    public int reloadTrustAnchors() throws Exception {
+        Set<TrustAnchor> anchors = loadNonEmptyTrustAnchors();
+        trustAnchors = TrustAnchors.of(anchors);
+        cache.invalidateAll();
+        return anchors.size();
+    }
+
+    /**
+     * Picks up a truststore rotated along with another replica's before this
+     * replica uses the new cache generation.
+     */
+    private void reloadAfterInvalidation() {
+        try {
+            trustAnchors = TrustAnchors.of(loadNonEmptyTrustAnchors());
+        } catch (Exception e) {
+            logger.warn("Could not reload truststore, keeping current trust anchors: {}", e.getMessage());
+        }
+    }
+
     /**
      * Validates a certificate chain.
      *
@@ -53,34 +141,50 @@ public class CertificateValidator {
      * @throws CertificateValidationException if validation fails
      */
     public void validateCertificateChain(X509Certificate leafCert) throws CertificateValidationException {
+        validateCertificateChain(leafCert, Collections.emptyList());
+    }
+
+    /**
+     * Validates a certificate chain, building it through the given intermediates,
+     * typically the certificates embedded in a CMS signature.
+     *
+     * @param leafCert      The end-entity certificate to validate
+     * @param intermediates Candidate intermediate certificates, in any order
+     * @throws CertificateValidationException if validation fails
+     */
+    public void validateCertificateChain(X509Certificate leafCert, Collection<X509Certificate> intermediates)
+            throws CertificateValidationException {
         try {
+            // Read the generation before the anchors, so a result validated
+            // against anchors replaced in the meantime is not cached
+            long generation = cache.generation();
+            TrustAnchors anchors = trustAnchors;
+
             // If no trust anchors are configured, only validate the certificate itself
-            if (trustAnchors.isEmpty()) {
-                logger.warn("No trust anchors configured, performing basic certificate validation only");
+            if (anchors.anchors().isEmpty()) {
                 validateCertificateExpiry(leafCert);
                 validateKeyUsage(leafCert);
                 return;
             }
 
-            // Create certification path
-            List<X509Certificate> certList = Collections.singletonList(leafCert);
-            CertPath certPath = certFactory.generateCertPath(certList);
+            String leafKey = Digests.toHex(Digests.sha256(leafCert.getEncoded()));
+            Long validUntil = validatedLeaves.get(leafKey);
+            if (validUntil == null || System.currentTimeMillis() > validUntil) {
+                ValidatedPath built = buildCertificateChain(anchors, leafCert, intermediates);
 
-            // Set up validation parameters
-            PKIXParameters params = new PKIXParameters(trustAnchors);
-            params.setRevocationEnabled(false); // Disable CRL checking for simplicity
+                // Validate against the single anchor the chain was built to
+                CertPath certPath = certFactory.generateCertPath(built.path());
+                PKIXParameters params = new PKIXParameters(Collections.singleton(built.anchor()));
+                params.setRevocationEnabled(false); // Disable CRL checking for simplicity
+                validator.validate(certPath, params);
 
-            // Validate the certification path
-            PKIXCertPathValidatorResult result =
-                    (PKIXCertPathValidatorResult) validator.validate(certPath, params);
+                validatedLeaves.put(leafKey, built.validUntil(), built.validUntil(), generation);
+            }
 
             // Additional validations
             validateCertificateExpiry(leafCert);
             validateKeyUsage(leafCert);
 
-            logger.debug("Certificate chain validation successful for subject: {}",
-                    leafCert.getSubjectX500Principal().getName());
-
         } catch (CertificateValidationException e) {
             throw e;
         } catch (Exception e) {
@@ -88,6 +192,20 @@ public class CertificateValidator {
         }
     }
 
+    /**
+     * Converts the certificates of a CMS certificate store, for use as
+     * intermediates in {@link #validateCertificateChain(X509Certificate, Collection)}.
+     */
+    public static List<X509Certificate> toX509Certificates(Store<X509CertificateHolder> store)
+            throws CertificateException {
+        JcaX509CertificateConverter converter = new JcaX509CertificateConverter();
+        List<X509Certificate> certificates = new ArrayList<>();
+        for (X509CertificateHolder holder : store.getMatches(null)) {
+            certificates.add(converter.getCertificate(holder));
+        }
+        return certificates;
+    }
+
     /**
      * Validates if a certificate has expired or is not yet valid.
      */
@@ -103,12 +221,6 @@ public class CertificateValidator {
                         cert.getSubjectX500Principal().getName());
             }
 
-            // Log certificate validity period
-            logger.debug("Certificate valid from {} to {} for subject: {}",
-                    cert.getNotBefore(),
-                    cert.getNotAfter(),
-                    cert.getSubjectX500Principal().getName());
-
         } catch (CertificateExpiredException | CertificateNotYetValidException e) {
             throw new CertificateValidationException(
                     "Certificate is not valid at current time: " +
@@ -133,62 +245,53 @@ public class CertificateValidator {
                     "Certificate is not authorized for digital signatures: " +
                             cert.getSubjectX500Principal().getName());
         }
-
-        // Log key usage for debugging
-        logger.debug("Certificate key usage validated for subject: {}",
-                cert.getSubjectX500Principal().getName());
     }
 
     /**
-     * Extracts the certificate chain from a certificate.
+     * Builds the certification path from the leaf up to, but excluding, a trust
+     * anchor. Each step is a map lookup by key identifier or subject DN.
      */
-    private List<X509Certificate> buildCertificateChain(X509Certificate leafCert)
+    private static ValidatedPath buildCertificateChain(TrustAnchors anchors, X509Certificate leafCert,
+                                                       Collection<X509Certificate> intermediates)
             throws CertificateValidationException {
-        List<X509Certificate> chain = new ArrayList<>();
-        try {
-            chain.add(leafCert);
-
-            // For self-signed certificates, the chain contains only the certificate itself
-            if (isSelfSigned(leafCert)) {
-                logger.debug("Certificate is self-signed: {}",
-                        leafCert.getSubjectX500Principal().getName());
-                return chain;
-            }
-
-            // For non-self-signed certificates, try to build the chain from trust anchors
-            for (TrustAnchor anchor : trustAnchors) {
-                if (isIssuer(anchor.getTrustedCert(), leafCert)) {
-                    chain.add(anchor.getTrustedCert());
-                    logger.debug("Added issuer to chain: {}",
-                            anchor.getTrustedCert().getSubjectX500Principal().getName());
-                    break;
+        CertificateIndex intermediateIndex = new CertificateIndex(intermediates);
+        List<X509Certificate> path = new ArrayList<>();
+        long validUntil = Long.MAX_VALUE;
+        X509Certificate current = leafCert;
+
+        while (path.size() < MAX_PATH_LENGTH) {
+            path.add(current);
+            validUntil = Math.min(validUntil, current.getNotAfter().getTime());
+
+            X509Certificate anchorCert = anchors.index().findIssuer(current);
+            if (anchorCert != null) {
+                validUntil = Math.min(validUntil, anchorCert.getNotAfter().getTime());
+                if (logger.isDebugEnabled()) {
+                    logger.debug("Built certification path of length {} to trust anchor: {}",
+                            path.size(), anchorCert.getSubjectX500Principal().getName());
                 }
+                return new ValidatedPath(anchors.byCertificate().get(anchorCert), List.copyOf(path), validUntil);
             }
 
-            return chain;
-        } catch (Exception e) {
-            throw new CertificateValidationException(
-                    "Failed to build certificate chain", e);
+            X509Certificate issuer = intermediateIndex.findIssuer(current);
+            if (issuer == null || path.contains(issuer)) {
+                throw new CertificateValidationException(
+                        "No trusted issuer found for certificate: " +
+                                current.getSubjectX500Principal().getName());
+            }
+            current = issuer;
         }
+        throw new CertificateValidationException(
+                "Certification path exceeds " + MAX_PATH_LENGTH + " certificates for subject: " +
+                        leafCert.getSubjectX500Principal().getName());
     }
 
-    /**
-     * Checks if a certificate is self-signed.
-     */
-    private boolean isSelfSigned(X509Certificate cert) {
-        try {
-            return cert.getSubjectX500Principal().equals(cert.getIssuerX500Principal());
-        } catch (Exception e) {
-            logger.warn("Error checking if certificate is self-signed: {}", e.getMessage());
-            return false;
+    private Set<TrustAnchor> loadNonEmptyTrustAnchors() throws Exception {
+        Set<TrustAnchor> anchors = loadTrustAnchors(resourceLoader, truststorePath, truststorePassword);
+        if (anchors.isEmpty()) {
+            throw new IllegalStateException("No trust anchors found in truststore: " + truststorePath);
         }
-    }
-
-    /**
-     * Checks if one certificate is the issuer of another.
-     */
-    private boolean isIssuer(X509Certificate issuer, X509Certificate cert) {
-        return cert.getIssuerX500Principal().equals(issuer.getSubjectX500Principal());
+        return anchors;
     }
 
     /**
@@ -234,4 +337,82 @@ public class CertificateValidator {
 
         return anchors;
     }
-}
\ No newline at end of file
+
+    /**
+     * Certificates indexed by subject DN and subject key identifier.
+     */
+    private static final class CertificateIndex {
+        private final Map<X500Principal, List<X509Certificate>> bySubject = new HashMap<>();
+        private final Map<ByteBuffer, X509Certificate> byKeyIdentifier = new HashMap<>();
+
+        CertificateIndex(Collection<X509Certificate> certificates) {
+            for (X509Certificate certificate : certificates) {
+                bySubject.computeIfAbsent(certificate.getSubjectX500Principal(), k -> new ArrayList<>(1))
+                        .add(certificate);
+                byte[] keyIdentifier = subjectKeyIdentifier(certificate);
+                if (keyIdentifier != null) {
+                    byKeyIdentifier.putIfAbsent(ByteBuffer.wrap(keyIdentifier), certificate);
+                }
+            }
+        }
+
+        /**
+         * Finds the issuer of a certificate by its authority key identifier,
+         * falling back to the issuer DN. A certificate found by DN is only
+         * returned without checking its key if it is the sole candidate and the
+         * certificate has no authority key identifier. Otherwise, as after a CA
+         * key rollover, the candidate whose key verifies the certificate is
+         * returned.
+         */
+        X509Certificate findIssuer(X509Certificate certificate) {
+            byte[] authorityKeyIdentifier = authorityKeyIdentifier(certificate);
+            if (authorityKeyIdentifier != null) {
+                X509Certificate issuer = byKeyIdentifier.get(ByteBuffer.wrap(authorityKeyIdentifier));
+                if (issuer != null && issuer.getSubjectX500Principal().equals(certificate.getIssuerX500Principal())) {
+                    return issuer;
+                }
+            }
+
+            List<X509Certificate> candidates = bySubject.get(certificate.getIssuerX500Principal());
+            if (candidates == null) {
+                return null;
+            }
+            if (candidates.size() == 1 && authorityKeyIdentifier == null) {
+                return candidates.get(0);
+            }
+            for (X509Certificate candidate : candidates) {
+                try {
+                    certificate.verify(candidate.getPublicKey());
+                    return candidate;
+                } catch (Exception e) {
+                    // Not signed by this candidate's key
+                }
+            }
+            return null;
+        }
+
+        private static byte[] subjectKeyIdentifier(X509Certificate certificate) {
+            byte[] extension = certificate.getExtensionValue(Extension.subjectKeyIdentifier.getId());
+            try {
+                return extension != null
+                        ? SubjectKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extension))
+                                .getKeyIdentifier()
+                        : null;
+            } catch (IOException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+
+        private static byte[] authorityKeyIdentifier(X509Certificate certificate) {
+            byte[] extension = certificate.getExtensionValue(Extension.authorityKeyIdentifier.getId());
+            try {
+                return extension != null
+                        ? AuthorityKeyIdentifier.getInstance(JcaX509ExtensionUtils.parseExtensionValue(extension))
+                                .getKeyIdentifier()
+                        : null;
+            } catch (IOException | IllegalArgumentException e) {
+                return null;
+            }
+        }
+    }
+}
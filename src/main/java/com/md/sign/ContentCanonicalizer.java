@@ -0,0 +1,145 @@
+package com.md.sign;
+
+import java.security.MessageDigest;
+import java.text.Normalizer;
+import java.util.Arrays;
+
+/**
+ * Single-pass canonicalization of document content.
+ * <p>
+ * Trimming, line-ending normalization, trailing-whitespace removal and UTF-8
+ * encoding all happen in one scan over the content, writing straight into the
+ * output buffer. The digest is fed from that buffer in chunks as it fills, so
+ * the content is neither copied per step nor re-read for hashing.
+ * <p>
+ * NFC composition needs lookahead across combining marks, so it is done up
+ * front, and only when the quick check finds the text is not already in NFC.
+ */
+public final class ContentCanonicalizer {
+
+    private static final int DIGEST_CHUNK = 8 * 1024;
+
+    private ContentCanonicalizer() {
+    }
+
+    public static CanonicalContent canonicalize(String content, Canonicalization canonicalization) {
+        String source = content != null ? content : "";
+        if (canonicalization.nfc() && !Normalizer.isNormalized(source, Normalizer.Form.NFC)) {
+            source = Normalizer.normalize(source, Normalizer.Form.NFC);
+        }
+
+        // Same bounds as String.trim()
+        int start = 0;
+        int end = source.length();
+        while (start < end && source.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && source.charAt(end - 1) <= ' ') {
+            end--;
+        }
+
+        Utf8Sink sink = new Utf8Sink(end - start);
+        boolean lineEndings = canonicalization.normalizeLineEndings();
+        boolean trailingWhitespace = canonicalization.stripTrailingWhitespace();
+        int whitespaceRun = -1;
+
+        for (int i = start; i < end; i++) {
+            char c = source.charAt(i);
+
+            if (lineEndings && c == '\r') {
+                if (i + 1 < end && source.charAt(i + 1) == '\n') {
+                    continue;
+                }
+                c = '\n';
+            }
+
+            if (trailingWhitespace) {
+                if (c == ' ' || c == '\t') {
+                    if (whitespaceRun < 0) {
+                        whitespaceRun = i;
+                    }
+                    continue;
+                }
+                if (c == '\n' || c == '\r') {
+                    whitespaceRun = -1;
+                } else if (whitespaceRun >= 0) {
+                    for (int j = whitespaceRun; j < i; j++) {
+                        sink.writeAscii(source.charAt(j));
+                    }
+                    whitespaceRun = -1;
+                }
+            }
+
+            if (c < 0x80) {
+                sink.writeAscii(c);
+            } else if (Character.isHighSurrogate(c) && i + 1 < end && Character.isLowSurrogate(source.charAt(i + 1))) {
+                sink.writeCodePoint(Character.toCodePoint(c, source.charAt(++i)));
+            } else if (Character.isSurrogate(c)) {
+                // Unpaired surrogates are replaced like String.getBytes(UTF_8) does
+                sink.writeAscii('?');
+            } else {
+                sink.writeCodePoint(c);
+            }
+        }
+
+        return sink.finish(canonicalization);
+    }
+
+    /**
+     * Growable UTF-8 output buffer that feeds its bytes to a digest.
+     */
+    private static final class Utf8Sink {
+        private final MessageDigest digest = Digests.newSha256();
+        private byte[] buffer;
+        private int length;
+        private int digested;
+
+        Utf8Sink(int expectedChars) {
+            this.buffer = new byte[Math.max(16, expectedChars)];
+        }
+
+        void writeAscii(char c) {
+            ensureCapacity(1);
+            buffer[length++] = (byte) c;
+            if (length - digested >= DIGEST_CHUNK) {
+                updateDigest();
+            }
+        }
+
+        void writeCodePoint(int codePoint) {
+            ensureCapacity(4);
+            if (codePoint < 0x800) {
+                buffer[length++] = (byte) (0xC0 | (codePoint >> 6));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else if (codePoint < 0x10000) {
+                buffer[length++] = (byte) (0xE0 | (codePoint >> 12));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            } else {
+                buffer[length++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[length++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[length++] = (byte) (0x80 | (codePoint & 0x3F));
+            }
+            if (length - digested >= DIGEST_CHUNK) {
+                updateDigest();
+            }
+        }
+
+        CanonicalContent finish(Canonicalization canonicalization) {
+            updateDigest();
+            return new CanonicalContent(canonicalization, buffer, length, digest.digest());
+        }
+
+        private void updateDigest() {
+            digest.update(buffer, digested, length - digested);
+            digested = length;
+        }
+
+        private void ensureCapacity(int extra) {
+            if (length + extra > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(length + extra, buffer.length + (buffer.length >> 1)));
+            }
+        }
+    }
+}
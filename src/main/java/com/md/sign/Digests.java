@@ -0,0 +1,46 @@
+package com.md.sign;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * SHA-256 helpers shared by signing, verification and the signature index.
+ */
+public final class Digests {
+
+    public static final int SHA256_LENGTH = 32;
+
+    private static final HexFormat HEX = HexFormat.of();
+
+    private Digests() {
+    }
+
+    public static MessageDigest newSha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    public static byte[] sha256(byte[] data) {
+        return newSha256().digest(data);
+    }
+
+    public static String toHex(byte[] digest) {
+        return HEX.formatHex(digest);
+    }
+
+    /**
+     * Parses a hex encoded SHA-256 digest.
+     *
+     * @throws IllegalArgumentException if the value is not a 64 character hex string
+     */
+    public static byte[] fromHex(String hex) {
+        if (hex == null || hex.length() != SHA256_LENGTH * 2) {
+            throw new IllegalArgumentException("Expected a hex encoded SHA-256 digest: " + hex);
+        }
+        return HEX.parseHex(hex);
+    }
+}
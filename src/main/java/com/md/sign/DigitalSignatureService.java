@@ -1,5 +1,12 @@
 package com.md.sign;
 
+import org.bouncycastle.asn1.ASN1Encoding;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.ASN1String;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.DERUTF8String;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
 import org.bouncycastle.cert.jcajce.JcaCertStore;
 import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
 import org.bouncycastle.cert.X509CertificateHolder;
@@ -8,13 +15,17 @@ import org.bouncycastle.cms.jcajce.*;
 import org.bouncycastle.operator.ContentSigner;
 import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
 import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.util.CollectionStore;
 import org.bouncycastle.util.Store;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import jakarta.annotation.PreDestroy;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
+import javax.security.auth.x500.X500Principal;
+import java.io.IOException;
 import java.nio.charset.StandardCharsets;
 import java.security.*;
 import java.security.cert.*;
@@ -22,14 +33,36 @@ import java.security.cert.Certificate;
 import java.time.Instant;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
 
 @Service
 public class DigitalSignatureService {
 
     private static final Logger logger = LoggerFactory.getLogger(DigitalSignatureService.class);
 
+    /**
+     * Length in bytes of the signer info digest prefix that identifies a co-signer.
+     */
+    private static final int SIGNER_REFERENCE_LENGTH = 16;
+
+    /**
+     * Signed attribute holding the canonicalization identifier, so that the
+     * identifier in the front matter cannot be changed without breaking the
+     * signature. Signatures with {@link Canonicalization#LEGACY} omit it.
+     */
+    public static final ASN1ObjectIdentifier CANONICALIZATION_ATTRIBUTE =
+            new ASN1ObjectIdentifier("2.25.853639923330560978456408696145515130");
+
     private final KeyStore keyStore;
     private final CertificateValidator certificateValidator;
+    private final SignatureIndex signatureIndex;
+    private final TimestampService timestampService;
+    private final BatchCollector<SignRequest, String> signBatchCollector;
+    private final Canonicalization canonicalization;
+    private final SectionDigester sectionDigester;
+    private final RequestTracer tracer;
+    private final VerificationCache verificationCache;
+    private final RenderCache renderCache;
 
     @Value("${signature.keystore.password}")
     private String keystorePassword;
@@ -40,66 +73,265 @@ public class DigitalSignatureService {
     @Value("${signature.validity.days:365}")
     private int validityDays;
 
+    @Value("${signature.sections.level:2}")
+    private int sectionLevel;
+
+    @Value("${signature.cache.ttl.seconds:3600}")
+    private long cacheTtlSeconds;
+
+    /**
+     * A document queued for batch signing, parsed and canonicalized up front so
+     * that a malformed document fails only its own request.
+     */
+    private record SignRequest(MarkdownDocument document, byte[] contentDigest, Map<String, String> metadata,
+                               RequestTracer.TraceLink trace) {
+    }
+
+    /**
+     * A parsed co-signature with its signers looked up by reference.
+     */
+    private record Cosignature(CMSSignedData signedData, Map<String, SignerInformation> signers) {
+    }
+
     @Autowired
-    public DigitalSignatureService(KeyStore keyStore, CertificateValidator certificateValidator) {
+    public DigitalSignatureService(KeyStore keyStore, CertificateValidator certificateValidator,
+                                   SignatureIndex signatureIndex, TimestampService timestampService,
+                                   SectionDigester sectionDigester, RequestTracer tracer,
+                                   VerificationCache verificationCache, RenderCache renderCache,
+                                   @Value("${signature.batch.enabled:false}") boolean batchEnabled,
+                                   @Value("${signature.batch.size:64}") int batchSize,
+                                   @Value("${signature.batch.window.ms:20}") long batchWindowMillis,
+                                   @Value("${signature.canonicalization:md-c14n-v1:eol+nfc}") String canonicalization) {
         this.keyStore = keyStore;
         this.certificateValidator = certificateValidator;
+        this.signatureIndex = signatureIndex;
+        this.timestampService = timestampService;
+        this.sectionDigester = sectionDigester;
+        this.tracer = tracer;
+        this.verificationCache = verificationCache;
+        this.renderCache = renderCache;
+        this.signBatchCollector = new BatchCollector<>("sign",
+                batchEnabled ? batchSize : 1, batchWindowMillis, this::signBatch);
+        this.canonicalization = Canonicalization.fromId(canonicalization);
     }
 
+    /**
+     * Signs a markdown document. In batched sign mode the document is collected
+     * with concurrent requests and signed through a shared Merkle root.
+     */
     public String signMarkdown(String markdownContent, Map<String, String> metadata) throws Exception {
-        logger.debug("Starting markdown signing process");
-        MarkdownDocument doc = MarkdownParser.parse(markdownContent);
-        String contentToSign = doc.getContent().trim();
+        return signMarkdown(markdownContent, metadata, null, false);
+    }
+
+    /**
+     * Signs a markdown document, or only the given sections of it. A section
+     * signature covers a Merkle root over the digests of the selected sections,
+     * so edits elsewhere in the document leave it valid.
+     *
+     * <p>
+     * A co-signature adds the signer to a single CMS structure shared by all
+     * co-signers of the document, instead of adding a separate signature.
+     *
+     * @param sections ids of the sections to sign, or null or empty for the whole document
+     * @param cosign whether to add the signer to the document's shared CMS structure
+     */
+    public String signMarkdown(String markdownContent, Map<String, String> metadata, List<String> sections,
+                               boolean cosign) throws Exception {
+        boolean sectionSignature = sections != null && !sections.isEmpty();
+        if (cosign) {
+            if (sectionSignature) {
+                throw new IllegalArgumentException("Co-signatures cover the whole document and cannot select sections");
+            }
+            return cosignMarkdown(markdownContent, metadata);
+        }
+        if (signBatchCollector.isBatching() && !sectionSignature) {
+            try {
+                return signBatchCollector.submit(signRequest(markdownContent, metadata)).get();
+            } catch (ExecutionException e) {
+                throw e.getCause() instanceof Exception cause ? cause : e;
+            }
+        }
+        return signDocument(markdownContent, metadata, sectionSignature ? sections : null, true);
+    }
+
+    /**
+     * Signs a throwaway document without recording it in the signature index,
+     * to load and compile the signing path before the first request.
+     */
+    String warmUpSign(String markdownContent) throws Exception {
+        return signDocument(markdownContent, Collections.emptyMap(), null, false);
+    }
+
+    /**
+     * Verifies a throwaway document without recording it in the signature index.
+     */
+    List<SignatureVerificationResult> warmUpVerify(String markdownContent) {
+        return verifySignatures(markdownContent, false);
+    }
+
+    private String signDocument(String markdownContent, Map<String, String> metadata, List<String> sections,
+                                boolean record) throws Exception {
+        MarkdownDocument doc = parse(markdownContent);
+        CanonicalContent contentToSign = canonicalContent(doc, canonicalization);
+
+        List<String> coveredSections = null;
+        CMSTypedData signedContent = contentToSign.toCMSTypedData();
+        byte[] coveredDigest = contentToSign.digest();
+        if (sections != null) {
+            coveredSections = selectSections(doc.getSections(sectionLevel), sections);
+            coveredDigest = sectionDigester.sectionRoot(doc.getSections(sectionLevel), coveredSections,
+                    canonicalization);
+            signedContent = new CMSProcessableByteArray(coveredDigest);
+        }
 
         SigningMaterials materials = getSigningMaterials();
-        CMSSignedData signedData = createSignature(contentToSign, materials);
+        CMSSignedData signedData = createSignature(signedContent, canonicalization, materials, true);
 
+        Instant signedAt = signingTime(signedData);
         DocumentSignature docSignature = new DocumentSignature(
-                Base64.getEncoder().encodeToString(signedData.getEncoded()),
+                SignatureCodec.encode(signedData),
                 materials.certificate().getSubjectX500Principal().getName(),
-                Instant.now().plus(validityDays, ChronoUnit.DAYS),
+                signedAt.plus(validityDays, ChronoUnit.DAYS),
                 metadata,
-                Instant.now()
+                signedAt,
+                null,
+                canonicalization.id(),
+                coveredSections,
+                null
         );
 
         doc.addSignature(docSignature);
-        logger.debug("Document signed successfully");
-        return MarkdownParser.serialize(doc);
+        if (record) {
+            signatureIndex.record(coveredDigest, docSignature.signerDN(),
+                    docSignature.signedAt(), docSignature.expirationDate());
+        }
+        return serialize(doc);
     }
 
-    public List<SignatureVerificationResult> verifySignatures(String markdownContent) {
-        try {
-            logger.debug("Starting signature verification process");
-            MarkdownDocument doc = MarkdownParser.parse(markdownContent);
-            List<SignatureVerificationResult> results = new ArrayList<>();
+    /**
+     * Adds a signer to the document's co-signature. All co-signers sign the same
+     * detached content, so the body is not embedded and certificates already in
+     * the structure are stored only once. Existing signers are kept as they are.
+     */
+    private String cosignMarkdown(String markdownContent, Map<String, String> metadata) throws Exception {
+        MarkdownDocument doc = parse(markdownContent);
+        Canonicalization cosignCanonicalization = cosignatureCanonicalization(doc);
+        CanonicalContent contentToSign = canonicalContent(doc, cosignCanonicalization);
 
-            if (doc.getSignatures().isEmpty()) {
-                logger.warn("No signatures found in document");
-                return Collections.singletonList(new SignatureVerificationResult(
-                        false,
-                        null,
-                        "No signatures found in document"
-                ));
-            }
+        SigningMaterials materials = getSigningMaterials();
+        CMSSignedData signerData = createSignature(contentToSign.toCMSTypedData(), cosignCanonicalization,
+                materials, false);
+        CMSSignedData cosignature = signerData;
+        if (doc.getCosignature() != null) {
+            cosignature = mergeSigners(new CMSSignedData(contentToSign.toCMSTypedData(),
+                    SignatureCodec.decode(doc.getCosignature())), signerData);
+        }
+        doc.setCosignature(SignatureCodec.encode(cosignature));
 
-            String contentToVerify = doc.getContent().trim();
-            logger.debug("Found {} signatures to verify", doc.getSignatures().size());
+        Instant signedAt = signingTime(signerData);
+        DocumentSignature docSignature = new DocumentSignature(
+                null,
+                materials.certificate().getSubjectX500Principal().getName(),
+                signedAt.plus(validityDays, ChronoUnit.DAYS),
+                metadata,
+                signedAt,
+                null,
+                cosignCanonicalization.id(),
+                null,
+                signerReference(signerData.getSignerInfos().iterator().next())
+        );
 
-            for (DocumentSignature signature : doc.getSignatures()) {
-                try {
-                    results.add(verifySignature(contentToVerify, signature));
-                } catch (Exception e) {
-                    logger.error("Error verifying signature: {}", signature.signerDN(), e);
-                    results.add(new SignatureVerificationResult(
-                            false,
-                            signature.signerDN(),
-                            "Signature verification failed: " + e.getMessage()
-                    ));
-                }
+        doc.addSignature(docSignature);
+        signatureIndex.record(contentToSign.digest(), docSignature.signerDN(),
+                docSignature.signedAt(), docSignature.expirationDate());
+        return serialize(doc);
+    }
+
+    /**
+     * Signs several markdown documents with a single private-key operation.
+     * <p>
+     * The CMS signature covers the root of a Merkle tree over the content
+     * digests of all documents. Each document receives that signature together
+     * with its inclusion proof.
+     */
+    public List<String> signMarkdownBatch(List<String> markdownContents, Map<String, String> metadata)
+            throws Exception {
+        List<SignRequest> requests = new ArrayList<>(markdownContents.size());
+        for (String markdownContent : markdownContents) {
+            requests.add(signRequest(markdownContent, metadata));
+        }
+        return signBatch(requests);
+    }
+
+    private SignRequest signRequest(String markdownContent, Map<String, String> metadata) {
+        MarkdownDocument doc = parse(markdownContent);
+        return new SignRequest(doc, canonicalContent(doc, canonicalization).digest(), metadata, tracer.current());
+    }
+
+    /**
+     * Signs a batch, usually on the collector's thread. The shared signing stages
+     * are traced once for every request in the batch, serialization for each
+     * request on its own.
+     */
+    private List<String> signBatch(List<SignRequest> requests) throws Exception {
+        if (requests.isEmpty()) {
+            return Collections.emptyList();
+        }
+        List<byte[]> contentDigests = new ArrayList<>(requests.size());
+        List<RequestTracer.TraceLink> traces = new ArrayList<>(requests.size());
+        for (SignRequest request : requests) {
+            contentDigests.add(request.contentDigest());
+            traces.add(request.trace());
+        }
+
+        MerkleTree tree = MerkleTree.build(contentDigests);
+        SigningMaterials materials;
+        CMSSignedData signedData;
+        try (RequestTracer.Scope scope = tracer.link(traces)) {
+            materials = getSigningMaterials();
+            signedData = createSignature(new CMSProcessableByteArray(tree.root()), canonicalization,
+                    materials, true);
+        }
+
+        String encodedSignature = SignatureCodec.encode(signedData);
+        String signerDN = materials.certificate().getSubjectX500Principal().getName();
+        Instant signedAt = signingTime(signedData);
+
+        List<String> signedDocuments = new ArrayList<>(requests.size());
+        for (int i = 0; i < requests.size(); i++) {
+            DocumentSignature docSignature = new DocumentSignature(
+                    encodedSignature,
+                    signerDN,
+                    signedAt.plus(validityDays, ChronoUnit.DAYS),
+                    requests.get(i).metadata(),
+                    signedAt,
+                    tree.proof(i),
+                    canonicalization.id(),
+                    null,
+                    null
+            );
+            MarkdownDocument doc = requests.get(i).document();
+            doc.addSignature(docSignature);
+            signatureIndex.record(contentDigests.get(i), signerDN, signedAt, docSignature.expirationDate());
+            try (RequestTracer.Scope scope = tracer.link(requests.get(i).trace())) {
+                signedDocuments.add(serialize(doc));
             }
+        }
+        return signedDocuments;
+    }
+
+    @PreDestroy
+    public void close() {
+        signBatchCollector.close();
+    }
 
-            return results;
+    public List<SignatureVerificationResult> verifySignatures(String markdownContent) {
+        return verifySignatures(markdownContent, true);
+    }
 
+    private List<SignatureVerificationResult> verifySignatures(String markdownContent, boolean record) {
+        try {
+            return verifySignatures(parse(markdownContent), record);
         } catch (Exception e) {
             logger.error("Error during signature verification process", e);
             return Collections.singletonList(new SignatureVerificationResult(
@@ -110,26 +342,268 @@ public class DigitalSignatureService {
         }
     }
 
-    private SignatureVerificationResult verifySignature(String content, DocumentSignature signature) {
+    private List<SignatureVerificationResult> verifySignatures(MarkdownDocument doc, boolean record) {
+        if (doc.getSignatures().isEmpty()) {
+            logger.warn("No signatures found in document");
+            return Collections.singletonList(new SignatureVerificationResult(
+                    false,
+                    null,
+                    "No signatures found in document"
+            ));
+        }
+
+        List<SignatureVerificationResult> results = new ArrayList<>();
+        Map<Canonicalization, Cosignature> cosignatures = new HashMap<>();
+        for (DocumentSignature signature : doc.getSignatures()) {
+            try {
+                SignatureVerificationResult result = verifySignature(doc, signature, cosignatures, record);
+                if (result.valid() && record) {
+                    signatureIndex.record(coveredDigest(doc, signature), result.signerDN(),
+                            signature.signedAt(), signature.expirationDate());
+                }
+                results.add(result);
+            } catch (Exception e) {
+                logger.error("Error verifying signature: {}", signature.signerDN(), e);
+                results.add(new SignatureVerificationResult(
+                        false,
+                        signature.signerDN(),
+                        "Signature verification failed: " + e.getMessage()
+                ));
+            }
+        }
+        return results;
+    }
+
+    /**
+     * Verifies all signatures of a markdown document and renders its body to
+     * HTML from the same parsed document. The HTML is only returned when every
+     * signature is valid, and only covers what the signatures cover: the whole
+     * body if any signature is over the whole document, otherwise just the
+     * signed sections. The result is cached by digest of the submitted
+     * markdown until the earliest signature or signer certificate expires or
+     * the trust anchors change, so repeated requests for a popular document
+     * skip parsing, verification and rendering.
+     */
+    public RenderedDocument verifyAndRender(String markdownContent) {
+        byte[] markdownDigest = Digests.sha256(markdownContent.getBytes(StandardCharsets.UTF_8));
+        long generation = verificationCache.generation();
+        RenderedDocument cached = renderCache.get(markdownDigest, generation);
+        if (cached != null) {
+            return cached;
+        }
+
+        MarkdownDocument doc = parse(markdownContent);
+        List<SignatureVerificationResult> results = verifySignatures(doc, true);
+        long expiresAt = Instant.now().plusSeconds(cacheTtlSeconds).toEpochMilli();
+        for (SignatureVerificationResult result : results) {
+            if (!result.valid()) {
+                return new RenderedDocument(null, results, null);
+            }
+            expiresAt = Math.min(expiresAt, result.validUntil().toEpochMilli());
+        }
+
+        long start = tracer.start();
+        List<String> renderedSections = signedSections(doc, results);
+        String html;
+        if (renderedSections == null) {
+            html = MarkdownHtml.render(doc.getAst());
+        } else {
+            Set<String> included = new HashSet<>(renderedSections);
+            StringBuilder body = new StringBuilder();
+            for (DocumentSection section : doc.getSections(sectionLevel)) {
+                if (included.contains(section.id())) {
+                    body.append(section.text());
+                }
+            }
+            html = MarkdownHtml.render(MarkdownSections.parse(body.toString()));
+        }
+        tracer.end(RequestTracer.Stage.RENDER, start);
+
+        RenderedDocument rendered = new RenderedDocument(html, results, renderedSections);
+        renderCache.put(markdownDigest, rendered, expiresAt, generation);
+        return rendered;
+    }
+
+    /**
+     * Returns the ids of the sections covered by the verified section signatures
+     * in document order, or null if a signature covers the whole document.
+     */
+    private List<String> signedSections(MarkdownDocument doc, List<SignatureVerificationResult> results) {
+        Set<String> covered = new HashSet<>();
+        for (SignatureVerificationResult result : results) {
+            if (result.sections() == null) {
+                return null;
+            }
+            covered.addAll(result.sections());
+        }
+        List<String> sections = new ArrayList<>();
+        for (DocumentSection section : doc.getSections(sectionLevel)) {
+            if (covered.contains(section.id())) {
+                sections.add(section.id());
+            }
+        }
+        return sections;
+    }
+
+    /**
+     * Reads the signatures from the front matter without verifying them. Each
+     * signature is matched against earlier successful verifications of the same
+     * signature over the same content, which only needs the content digest.
+     */
+    public List<SignatureInspection> inspectSignatures(String markdownContent) {
+        MarkdownDocument doc = parse(markdownContent);
+        Instant now = Instant.now();
+        List<SignatureInspection> inspections = new ArrayList<>(doc.getSignatures().size());
+        for (DocumentSignature signature : doc.getSignatures()) {
+            VerificationCache.Entry verified = null;
+            try {
+                verified = verificationCache.lookup(coveredDigest(doc, signature), verificationReference(signature));
+                if (verified != null && !sameSigner(signature.signerDN(), new X500Principal(verified.signerDN()))) {
+                    verified = null;
+                }
+            } catch (RuntimeException e) {
+                logger.warn("Cannot digest content signed by {}: {}", signature.signerDN(), e.getMessage());
+            }
+            inspections.add(new SignatureInspection(
+                    signature.signerDN(),
+                    signature.signedAt(),
+                    signature.expirationDate(),
+                    signature.metadata(),
+                    signature.sections(),
+                    signature.signerInfo() != null,
+                    signature.expirationDate() != null && now.isAfter(signature.expirationDate()),
+                    verified != null,
+                    verified != null ? verified.verifiedAt() : null
+            ));
+        }
+        return inspections;
+    }
+
+    /**
+     * Lists the sections of a markdown document with their current digests.
+     */
+    public List<SectionSummary> listSections(String markdownContent) {
+        MarkdownDocument doc = MarkdownParser.parse(markdownContent);
+        List<SectionSummary> summaries = new ArrayList<>();
+        for (DocumentSection section : doc.getSections(sectionLevel)) {
+            summaries.add(new SectionSummary(
+                    section.id(),
+                    section.title(),
+                    section.level(),
+                    Digests.toHex(sectionDigester.digest(section, canonicalization))
+            ));
+        }
+        return summaries;
+    }
+
+    /**
+     * Returns the known signatures over content with the given SHA-256 digest.
+     * Section signatures are recorded under the root over their covered
+     * sections, the same value they sign.
+     */
+    public List<SignatureIndexEntry> findSignaturesByDigest(String contentDigest) {
+        return signatureIndex.findByDigest(Digests.fromHex(contentDigest));
+    }
+
+    /**
+     * Returns the documents signed by the given DN within the time range.
+     */
+    public List<SignatureIndexEntry> findSignaturesBySigner(String signerDN, Instant from, Instant to, int limit) {
+        return signatureIndex.findBySigner(signerDN, from, to, limit);
+    }
+
+    /**
+     * Verifies one signature entry. A signature that already passed verification
+     * over the same content, on this or another replica, is accepted from the
+     * verification cache. Co-signatures are looked up in the document's shared
+     * CMS structure, which is parsed once and kept in {@code cosignatures} for
+     * the remaining entries.
+     *
+     * @param record whether to cache a successful result
+     */
+    private SignatureVerificationResult verifySignature(MarkdownDocument doc, DocumentSignature signature,
+                                                        Map<Canonicalization, Cosignature> cosignatures,
+                                                        boolean record) {
         try {
-            byte[] signatureBytes = Base64.getDecoder().decode(signature.signature());
-            logger.debug("Verifying signature from: {}", signature.signerDN());
+            long generation = verificationCache.generation();
+            byte[] coveredDigest = coveredDigest(doc, signature);
+            String reference = verificationReference(signature);
+            VerificationCache.Entry verified = verificationCache.lookup(coveredDigest, reference);
+            if (verified != null) {
+                if (!sameSigner(signature.signerDN(), new X500Principal(verified.signerDN()))) {
+                    return signerMismatch(signature);
+                }
+                return new SignatureVerificationResult(
+                        true,
+                        verified.signerDN(),
+                        verified.message(),
+                        verified.timestampedAt(),
+                        verified.timestampStatus(),
+                        signature.sections(),
+                        verified.validUntil()
+                );
+            }
 
-            CMSSignedData signedData = new CMSSignedData(
-                    new CMSProcessableByteArray(content.getBytes(StandardCharsets.UTF_8)),
-                    signatureBytes
-            );
+            Canonicalization signatureCanonicalization = Canonicalization.fromId(signature.canonicalization());
+            CMSSignedData signedData;
+            SignerInformation signer;
+            if (signature.signerInfo() != null) {
+                Cosignature cosignature = cosignatures.get(signatureCanonicalization);
+                if (cosignature == null) {
+                    cosignature = parseCosignature(doc, signatureCanonicalization);
+                    cosignatures.put(signatureCanonicalization, cosignature);
+                }
+                signedData = cosignature.signedData();
+                signer = cosignature.signers().get(signature.signerInfo());
+                if (signer == null) {
+                    throw new CMSException("Signer " + signature.signerInfo() + " not found in co-signature");
+                }
+            } else {
+                CMSTypedData signedContent;
+                if (signature.sections() != null) {
+                    long start = tracer.start();
+                    signedContent = new CMSProcessableByteArray(sectionDigester.sectionRoot(
+                            doc.getSections(sectionLevel), signature.sections(), signatureCanonicalization));
+                    tracer.end(RequestTracer.Stage.CANONICALIZE, start);
+                } else if (signature.merkleProof() != null) {
+                    CanonicalContent content = canonicalContent(doc, signatureCanonicalization);
+                    signedContent = new CMSProcessableByteArray(
+                            MerkleTree.rootFromProof(content.digest(), signature.merkleProof()));
+                } else {
+                    signedContent = canonicalContent(doc, signatureCanonicalization).toCMSTypedData();
+                }
+
+                signedData = new CMSSignedData(
+                        signedContent,
+                        SignatureCodec.decode(signature.signature())
+                );
+                signer = signedData.getSignerInfos().getSigners().iterator().next();
+            }
+
+            if (!signatureCanonicalization.equals(signedCanonicalization(signer))) {
+                return new SignatureVerificationResult(
+                        false,
+                        signature.signerDN(),
+                        "Canonicalization in front matter does not match the signature"
+                );
+            }
 
-            SignerInformation signer = signedData.getSignerInfos().getSigners().iterator().next();
             X509Certificate signerCert = extractSignerCertificate(signedData, signer);
+            if (!sameSigner(signature.signerDN(), signerCert.getSubjectX500Principal())) {
+                return signerMismatch(signature);
+            }
+            String signerDN = signerCert.getSubjectX500Principal().getName();
 
-            certificateValidator.validateCertificateChain(signerCert);
+            long start = tracer.start();
+            certificateValidator.validateCertificateChain(signerCert,
+                    CertificateValidator.toX509Certificates(signedData.getCertificates()));
+            tracer.end(RequestTracer.Stage.CHAIN_VALIDATION, start);
 
+            start = tracer.start();
             boolean isValid = signer.verify(new JcaSimpleSignerInfoVerifierBuilder()
                     .setProvider("BC")
                     .build(signerCert));
-
-            logger.debug("Cryptographic verification result: {}", isValid);
+            tracer.end(RequestTracer.Stage.VERIFY, start);
 
             if (!isValid) {
                 return new SignatureVerificationResult(
@@ -139,6 +613,22 @@ public class DigitalSignatureService {
                 );
             }
 
+            Instant timestampedAt = null;
+            SignatureVerificationResult.TimestampStatus timestampStatus;
+            String message = "Signature is valid";
+            start = tracer.start();
+            try {
+                timestampedAt = timestampService.verifyTimestamp(signer);
+                timestampStatus = timestampedAt != null
+                        ? SignatureVerificationResult.TimestampStatus.VERIFIED
+                        : SignatureVerificationResult.TimestampStatus.MISSING;
+            } catch (Exception e) {
+                timestampStatus = SignatureVerificationResult.TimestampStatus.UNTRUSTED;
+                message = "Signature is valid, timestamp not verified: " + e.getMessage();
+            } finally {
+                tracer.end(RequestTracer.Stage.TIMESTAMP, start);
+            }
+
             if (signature.expirationDate() != null &&
                     Instant.now().isAfter(signature.expirationDate())) {
                 logger.warn("Signature from {} has expired", signature.signerDN());
@@ -149,10 +639,25 @@ public class DigitalSignatureService {
                 );
             }
 
+            Instant validUntil = signerCert.getNotAfter().toInstant();
+            if (signature.expirationDate() != null && signature.expirationDate().isBefore(validUntil)) {
+                validUntil = signature.expirationDate();
+            }
+            if (record) {
+                verificationCache.record(coveredDigest, reference,
+                        new VerificationCache.Entry(signerDN, Instant.now(), timestampedAt,
+                                timestampStatus, message, validUntil),
+                        validUntil, generation);
+            }
+
             return new SignatureVerificationResult(
                     true,
-                    signature.signerDN(),
-                    "Signature is valid"
+                    signerDN,
+                    message,
+                    timestampedAt,
+                    timestampStatus,
+                    signature.sections(),
+                    validUntil
             );
 
         } catch (CMSException e) {
@@ -172,7 +677,150 @@ public class DigitalSignatureService {
         }
     }
 
+    /**
+     * Returns the digest of the content a signature covers: the section root for
+     * section signatures, otherwise the canonical content digest.
+     */
+    private byte[] coveredDigest(MarkdownDocument doc, DocumentSignature signature) {
+        Canonicalization signatureCanonicalization = Canonicalization.fromId(signature.canonicalization());
+        if (signature.sections() != null) {
+            return sectionDigester.sectionRoot(doc.getSections(sectionLevel), signature.sections(),
+                    signatureCanonicalization);
+        }
+        return canonicalContent(doc, signatureCanonicalization).digest();
+    }
+
+    /**
+     * Identifies a signature for the verification cache: co-signers by their
+     * signer reference, other signatures by a digest of the encoded value. The
+     * canonicalization is part of the reference, since it is only checked
+     * against the signature on a full verification.
+     */
+    private static String verificationReference(DocumentSignature signature) {
+        String reference = signature.signerInfo() != null
+                ? signature.signerInfo()
+                : Digests.toHex(Digests.sha256(signature.signature().getBytes(StandardCharsets.US_ASCII)));
+        return signature.canonicalization() != null ? reference + '@' + signature.canonicalization() : reference;
+    }
+
+    /**
+     * Checks the signer DN from the front matter against the subject of the
+     * signer certificate. Both are compared as distinguished names, so
+     * differences in spacing or attribute case do not matter.
+     */
+    private static boolean sameSigner(String claimedDN, X500Principal subject) {
+        if (claimedDN == null) {
+            return false;
+        }
+        try {
+            return new X500Principal(claimedDN).equals(subject);
+        } catch (IllegalArgumentException e) {
+            return false;
+        }
+    }
+
+    private static SignatureVerificationResult signerMismatch(DocumentSignature signature) {
+        return new SignatureVerificationResult(
+                false,
+                signature.signerDN(),
+                "Signer DN in front matter does not match the signer certificate"
+        );
+    }
+
+    /**
+     * Returns the canonicalization recorded in the signer's signed attributes,
+     * or {@link Canonicalization#LEGACY} for signatures without one.
+     */
+    private static Canonicalization signedCanonicalization(SignerInformation signer) {
+        AttributeTable signedAttributes = signer.getSignedAttributes();
+        Attribute attribute = signedAttributes != null ? signedAttributes.get(CANONICALIZATION_ATTRIBUTE) : null;
+        if (attribute == null) {
+            return Canonicalization.LEGACY;
+        }
+        return Canonicalization.fromId(((ASN1String) attribute.getAttrValues().getObjectAt(0)).getString());
+    }
+
+    private Cosignature parseCosignature(MarkdownDocument doc, Canonicalization cosignCanonicalization)
+            throws CMSException, IOException {
+        if (doc.getCosignature() == null) {
+            throw new CMSException("Document has no co-signature");
+        }
+        CMSSignedData signedData = new CMSSignedData(
+                canonicalContent(doc, cosignCanonicalization).toCMSTypedData(),
+                SignatureCodec.decode(doc.getCosignature())
+        );
+        Map<String, SignerInformation> signers = new HashMap<>();
+        for (SignerInformation signer : signedData.getSignerInfos().getSigners()) {
+            signers.put(signerReference(signer), signer);
+        }
+        return new Cosignature(signedData, signers);
+    }
+
+    /**
+     * Returns the canonicalization used by the document's existing co-signers,
+     * which a new co-signer has to follow to sign the same content.
+     */
+    private Canonicalization cosignatureCanonicalization(MarkdownDocument doc) {
+        if (doc.getCosignature() != null) {
+            for (DocumentSignature signature : doc.getSignatures()) {
+                if (signature.signerInfo() != null) {
+                    return Canonicalization.fromId(signature.canonicalization());
+                }
+            }
+        }
+        return canonicalization;
+    }
+
+    /**
+     * Adds the signers and certificates of {@code addition} to {@code signedData},
+     * skipping certificates that are already present.
+     */
+    private static CMSSignedData mergeSigners(CMSSignedData signedData, CMSSignedData addition) throws CMSException {
+        List<SignerInformation> signers = new ArrayList<>(signedData.getSignerInfos().getSigners());
+        signers.addAll(addition.getSignerInfos().getSigners());
+
+        Set<X509CertificateHolder> certificates = new LinkedHashSet<>(signedData.getCertificates().getMatches(null));
+        certificates.addAll(addition.getCertificates().getMatches(null));
+
+        CMSSignedData merged = CMSSignedData.replaceSigners(signedData, new SignerInformationStore(signers));
+        return CMSSignedData.replaceCertificatesAndCRLs(merged, new CollectionStore<>(certificates),
+                signedData.getAttributeCertificates(), signedData.getCRLs());
+    }
+
+    /**
+     * Identifies a signer by a digest prefix of its encoded signer info. Signer
+     * infos are stored as a DER set, which does not preserve their order. The
+     * whole signer info is hashed rather than the signature value, since one key
+     * signing the same content within the same second yields the same value.
+     */
+    private static String signerReference(SignerInformation signer) throws IOException {
+        byte[] digest = Digests.sha256(signer.toASN1Structure().getEncoded(ASN1Encoding.DER));
+        return Digests.toHex(Arrays.copyOf(digest, SIGNER_REFERENCE_LENGTH));
+    }
+
+    private MarkdownDocument parse(String markdownContent) {
+        long start = tracer.start();
+        MarkdownDocument doc = MarkdownParser.parse(markdownContent);
+        tracer.end(RequestTracer.Stage.PARSE, start);
+        return doc;
+    }
+
+    private CanonicalContent canonicalContent(MarkdownDocument doc, Canonicalization contentCanonicalization) {
+        long start = tracer.start();
+        CanonicalContent content = doc.canonicalContent(contentCanonicalization);
+        tracer.end(RequestTracer.Stage.CANONICALIZE, start);
+        return content;
+    }
+
+    private String serialize(MarkdownDocument doc) {
+        long start = tracer.start();
+        String serialized = MarkdownParser.serialize(doc);
+        tracer.end(RequestTracer.Stage.SERIALIZE, start);
+        return serialized;
+    }
+
     private SigningMaterials getSigningMaterials() throws Exception {
+        long start = tracer.start();
         try {
             PrivateKey privateKey = (PrivateKey) keyStore.getKey(
                     keystoreAlias,
@@ -201,13 +849,36 @@ public class DigitalSignatureService {
         } catch (Exception e) {
             logger.error("Error loading signing materials", e);
             throw new KeyStoreException("Failed to load signing materials: " + e.getMessage(), e);
+        } finally {
+            tracer.end(RequestTracer.Stage.MATERIALS, start);
+        }
+    }
+
+    /**
+     * Resolves requested section ids against the document, in document order.
+     */
+    private List<String> selectSections(List<DocumentSection> sections, List<String> requested) {
+        Set<String> remaining = new LinkedHashSet<>(requested);
+        List<String> selected = new ArrayList<>();
+        for (DocumentSection section : sections) {
+            if (remaining.remove(section.id())) {
+                selected.add(section.id());
+            }
         }
+        if (!remaining.isEmpty()) {
+            throw new IllegalArgumentException("Sections not found in document: " + remaining);
+        }
+        return selected;
+    }
+
+    private Instant signingTime(CMSSignedData signedData) throws Exception {
+        Instant timestampTime = timestampService.timestampTime(signedData.getSignerInfos().iterator().next());
+        return timestampTime != null ? timestampTime : Instant.now();
     }
 
-    private CMSSignedData createSignature(String content, SigningMaterials materials) throws Exception {
+    private CMSSignedData createSignature(CMSTypedData cmsData, Canonicalization contentCanonicalization,
+                                          SigningMaterials materials, boolean encapsulate) throws Exception {
         try {
-            byte[] contentBytes = content.getBytes(StandardCharsets.UTF_8);
-            CMSTypedData cmsData = new CMSProcessableByteArray(contentBytes);
 
             Store certs = new JcaCertStore(materials.certificateChain());
 
@@ -215,16 +886,27 @@ public class DigitalSignatureService {
                     .setProvider("BC")
                     .build(materials.privateKey());
 
-            CMSSignedDataGenerator generator = new CMSSignedDataGenerator();
-            generator.addSignerInfoGenerator(
-                    new JcaSignerInfoGeneratorBuilder(
-                            new JcaDigestCalculatorProviderBuilder().setProvider("BC").build()
-                    )
-                            .build(contentSigner, materials.certificate())
+            JcaSignerInfoGeneratorBuilder signerInfoBuilder = new JcaSignerInfoGeneratorBuilder(
+                    new JcaDigestCalculatorProviderBuilder().setProvider("BC").build()
             );
+            if (contentCanonicalization.id() != null) {
+                signerInfoBuilder.setSignedAttributeGenerator(new DefaultSignedAttributeTableGenerator(
+                        new AttributeTable(new Attribute(CANONICALIZATION_ATTRIBUTE,
+                                new DERSet(new DERUTF8String(contentCanonicalization.id()))))));
+            }
+
+            CMSSignedDataGenerator generator = new CMSSignedDataGenerator();
+            generator.addSignerInfoGenerator(signerInfoBuilder.build(contentSigner, materials.certificate()));
             generator.addCertificates(certs);
 
-            return generator.generate(cmsData, true);
+            long start = tracer.start();
+            CMSSignedData signedData = generator.generate(cmsData, encapsulate);
+            tracer.end(RequestTracer.Stage.SIGN, start);
+
+            start = tracer.start();
+            CMSSignedData timestamped = timestampService.addTimestamps(signedData);
+            tracer.end(RequestTracer.Stage.TIMESTAMP, start);
+            return timestamped;
 
         } catch (Exception e) {
             logger.error("Error creating signature", e);
@@ -0,0 +1,9 @@
+package com.md.sign;
+
+/**
+ * A section of the document body, running from one heading up to the next
+ * heading of the same or a higher level. Text before the first heading forms
+ * the preamble section.
+ */
+public record DocumentSection(String id, String title, int level, String text) {
+}
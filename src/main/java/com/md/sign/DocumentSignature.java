@@ -1,19 +1,40 @@
 package com.md.sign;
 
 import java.time.Instant;
+import java.util.List;
 import java.util.Map;
 import java.util.HashMap;
 
+/**
+ * A signature entry from the document front matter. Signatures from a batched
+ * sign carry the Merkle proof linking the document to the signed batch root.
+ * The canonicalization identifier is null for signatures over trimmed content.
+ * Section signatures list the ids of the sections they cover, and are null otherwise.
+ * Co-signatures have no signature of their own: {@code signerInfo} references
+ * their signer in the document's shared CMS structure instead.
+ */
 public record DocumentSignature(String signature, String signerDN, Instant expirationDate, Map<String, String> metadata,
-                                Instant signedAt) {
+                                Instant signedAt, MerkleProof merkleProof, String canonicalization,
+                                List<String> sections, String signerInfo) {
     public DocumentSignature(String signature, String signerDN,
                              Instant expirationDate, Map<String, String> metadata,
-                             Instant signedAt) {
+                             Instant signedAt, MerkleProof merkleProof, String canonicalization,
+                             List<String> sections, String signerInfo) {
         this.signature = signature;
         this.signerDN = signerDN;
         this.expirationDate = expirationDate;
         this.metadata = metadata != null ? new HashMap<>(metadata) : new HashMap<>();
         this.signedAt = signedAt;
+        this.merkleProof = merkleProof;
+        this.canonicalization = canonicalization;
+        this.sections = sections != null ? List.copyOf(sections) : null;
+        this.signerInfo = signerInfo;
+    }
+
+    public DocumentSignature(String signature, String signerDN,
+                             Instant expirationDate, Map<String, String> metadata,
+                             Instant signedAt) {
+        this(signature, signerDN, expirationDate, metadata, signedAt, null, null, null, null);
     }
 
     @Override
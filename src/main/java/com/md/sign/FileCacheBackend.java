@@ -0,0 +1,248 @@
+package com.md.sign;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+
+/**
+ * Cache backend on a directory shared by the replicas, such as a network mount,
+ * or local to one host for tests.
+ * <p>
+ * Each entry is a file named by the digest of its key, holding the expiry time,
+ * the value and an HMAC-SHA256 over the key digest, expiry time and value. The
+ * replicas share the HMAC key, so an entry planted or altered by anyone else
+ * with write access to the directory, or moved to another key's file, is
+ * rejected and removed on read. Entries are written to a temporary file and moved into
+ * place, so readers never see a partial entry. The generation is kept in a
+ * separate file and advanced under a file lock, which also removes all entries
+ * stored so far. Expired entries are removed when they are read, and by a
+ * periodic sweep for entries that are never read again.
+ */
+public class FileCacheBackend implements CacheBackend, AutoCloseable {
+
+    private static final Logger logger = LoggerFactory.getLogger(FileCacheBackend.class);
+
+    private static final String GENERATION_FILE = "generation";
+    private static final String ENTRY_SUFFIX = ".entry";
+    private static final String MAC_ALGORITHM = "HmacSHA256";
+    private static final int MAC_LENGTH = 32;
+    private static final int MIN_KEY_LENGTH = 32;
+
+    private final Path directory;
+    private final Path generationFile;
+    private final SecretKeySpec macKey;
+    private final ScheduledExecutorService sweeper;
+
+    /**
+     * @param macKey HMAC key shared by the replicas, at least 32 bytes
+     * @param sweepIntervalMillis interval between sweeps for expired entries, or 0 for none
+     */
+    public FileCacheBackend(Path directory, byte[] macKey, long sweepIntervalMillis) {
+        if (macKey == null || macKey.length < MIN_KEY_LENGTH) {
+            throw new IllegalArgumentException("Shared cache HMAC key must be at least " + MIN_KEY_LENGTH + " bytes");
+        }
+        this.directory = directory;
+        this.macKey = new SecretKeySpec(macKey, MAC_ALGORITHM);
+        this.generationFile = directory.resolve(GENERATION_FILE);
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Cannot create cache directory " + directory, e);
+        }
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-sweep");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sweepIntervalMillis > 0) {
+            sweeper.scheduleWithFixedDelay(this::sweep, sweepIntervalMillis, sweepIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @Override
+    public byte[] get(String key) {
+        Path file = entryFile(key);
+        try {
+            byte[] data = Files.readAllBytes(file);
+            int macOffset = data.length - MAC_LENGTH;
+            if (macOffset < Long.BYTES || !MessageDigest.isEqual(
+                    mac(key, data, macOffset), Arrays.copyOfRange(data, macOffset, data.length))) {
+                logger.warn("Removing cache entry {} with an invalid HMAC", file);
+                Files.deleteIfExists(file);
+                return null;
+            }
+            if (ByteBuffer.wrap(data).getLong() < System.currentTimeMillis()) {
+                Files.deleteIfExists(file);
+                return null;
+            }
+            return Arrays.copyOfRange(data, Long.BYTES, macOffset);
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException e) {
+            logger.warn("Failed to read cache entry {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    @Override
+    public void put(String key, byte[] value, long expiresAtMillis) {
+        Path file = entryFile(key);
+        try {
+            Path temp = Files.createTempFile(directory, null, ".tmp");
+            try {
+                byte[] data = ByteBuffer.allocate(Long.BYTES + value.length + MAC_LENGTH)
+                        .putLong(expiresAtMillis).put(value).array();
+                System.arraycopy(mac(key, data, Long.BYTES + value.length), 0,
+                        data, Long.BYTES + value.length, MAC_LENGTH);
+                Files.write(temp, data);
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temp);
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to write cache entry {}: {}", file, e.getMessage());
+        }
+    }
+
+    @Override
+    public long generation() {
+        try (FileChannel channel = FileChannel.open(generationFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock(0, Long.MAX_VALUE, true)) {
+            return readGeneration(channel);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to read cache generation", e);
+        }
+    }
+
+    @Override
+    public long advanceGeneration() {
+        try (FileChannel channel = FileChannel.open(generationFile,
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+             FileLock lock = channel.lock()) {
+            long generation = readGeneration(channel) + 1;
+            channel.write(ByteBuffer.allocate(Long.BYTES).putLong(0, generation), 0);
+            channel.force(true);
+            deleteEntries();
+            return generation;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to advance cache generation", e);
+        }
+    }
+
+    /**
+     * Removes the entries that have expired. Other replicas may sweep the same
+     * directory at the same time; an entry rewritten while it is being swept
+     * may be removed too, which only costs a cache miss.
+     *
+     * @return the number of entries removed
+     */
+    public int sweep() {
+        long now = System.currentTimeMillis();
+        int removed = 0;
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : entries) {
+                try {
+                    if (expiresAt(entry) < now && Files.deleteIfExists(entry)) {
+                        removed++;
+                    }
+                } catch (NoSuchFileException e) {
+                    // Removed by a reader or another replica
+                } catch (IOException e) {
+                    logger.warn("Failed to sweep cache entry {}: {}", entry, e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Failed to sweep cache directory {}: {}", directory, e.getMessage());
+        }
+        if (removed > 0) {
+            logger.debug("Removed {} expired cache entries", removed);
+        }
+        return removed;
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+    }
+
+    /**
+     * Reads the expiry time at the start of an entry file, treating a truncated file as expired.
+     */
+    private static long expiresAt(Path entry) throws IOException {
+        try (FileChannel channel = FileChannel.open(entry, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    return Long.MIN_VALUE;
+                }
+            }
+            return buffer.getLong(0);
+        }
+    }
+
+    private static long readGeneration(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) {
+                return 0;
+            }
+        }
+        return buffer.getLong(0);
+    }
+
+    /**
+     * Removes the entries of earlier generations, which can no longer be read.
+     */
+    private void deleteEntries() throws IOException {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory, "*" + ENTRY_SUFFIX)) {
+            for (Path entry : entries) {
+                Files.deleteIfExists(entry);
+            }
+        }
+    }
+
+    private Path entryFile(String key) {
+        return directory.resolve(Digests.toHex(keyDigest(key)) + ENTRY_SUFFIX);
+    }
+
+    private static byte[] keyDigest(String key) {
+        return Digests.sha256(key.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Computes the HMAC of the first {@code length} bytes of an entry, bound to its key.
+     */
+    private byte[] mac(String key, byte[] data, int length) {
+        try {
+            Mac mac = Mac.getInstance(MAC_ALGORITHM);
+            mac.init(macKey);
+            mac.update(keyDigest(key));
+            mac.update(data, 0, length);
+            return mac.doFinal();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("HMAC-SHA256 is not available", e);
+        }
+    }
+}
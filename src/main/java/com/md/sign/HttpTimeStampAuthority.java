@@ -0,0 +1,58 @@
+package com.md.sign;
+
+import org.bouncycastle.tsp.*;
+
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.security.SecureRandom;
+import java.time.Duration;
+
+/**
+ * Requests timestamp tokens from a remote RFC 3161 timestamp authority over HTTP.
+ */
+public class HttpTimeStampAuthority implements TimeStampAuthority {
+
+    private static final String TIMESTAMP_QUERY = "application/timestamp-query";
+
+    private final URI uri;
+    private final Duration timeout;
+    private final HttpClient httpClient;
+    private final SecureRandom random = new SecureRandom();
+
+    public HttpTimeStampAuthority(URI uri, Duration timeout) {
+        this.uri = uri;
+        this.timeout = timeout;
+        this.httpClient = HttpClient.newBuilder()
+                .connectTimeout(timeout)
+                .build();
+    }
+
+    @Override
+    public TimeStampToken timestamp(byte[] messageImprint) throws Exception {
+        TimeStampRequestGenerator requestGenerator = new TimeStampRequestGenerator();
+        requestGenerator.setCertReq(true);
+        TimeStampRequest request = requestGenerator.generate(TSPAlgorithms.SHA256, messageImprint,
+                BigInteger.valueOf(random.nextLong()));
+
+        HttpRequest httpRequest = HttpRequest.newBuilder(uri)
+                .timeout(timeout)
+                .header("Content-Type", TIMESTAMP_QUERY)
+                .POST(HttpRequest.BodyPublishers.ofByteArray(request.getEncoded()))
+                .build();
+        HttpResponse<byte[]> httpResponse = httpClient.send(httpRequest, HttpResponse.BodyHandlers.ofByteArray());
+        if (httpResponse.statusCode() != 200) {
+            throw new TSPException("Timestamp authority returned HTTP " + httpResponse.statusCode());
+        }
+
+        TimeStampResponse response = new TimeStampResponse(httpResponse.body());
+        response.validate(request);
+        TimeStampToken token = response.getTimeStampToken();
+        if (token == null) {
+            throw new TSPException("Timestamp request rejected: " + response.getStatusString());
+        }
+        return token;
+    }
+}
@@ -0,0 +1,110 @@
+package com.md.sign;
+
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.*;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaCertStore;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoGeneratorBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.bouncycastle.operator.jcajce.JcaDigestCalculatorProviderBuilder;
+import org.bouncycastle.tsp.*;
+
+import java.math.BigInteger;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.PrivateKey;
+import java.security.SecureRandom;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Embedded timestamp authority for tests and air-gapped deployments.
+ * <p>
+ * Issues RFC 3161 tokens with a key and certificate loaded from a keystore, so
+ * that tokens issued before a restart or by another replica with the same
+ * keystore are still trusted. Without a keystore, a key pair and self-signed
+ * certificate are generated at startup and only this process trusts its
+ * tokens. Either way, tokens are only as trustworthy as the host clock.
+ */
+public class LocalTimeStampAuthority implements TimeStampAuthority {
+
+    private static final ASN1ObjectIdentifier TSA_POLICY = new ASN1ObjectIdentifier("2.25.259458961947445038400304364294236755542");
+
+    private final X509Certificate certificate;
+    private final TimeStampTokenGenerator tokenGenerator;
+    private final AtomicLong serialNumber = new AtomicLong(System.currentTimeMillis());
+    private final SecureRandom random = new SecureRandom();
+
+    /**
+     * Creates an authority with a key pair and certificate that only live as long as this process.
+     */
+    public LocalTimeStampAuthority(String subjectDN) throws Exception {
+        this(generateKeyPair(), subjectDN);
+    }
+
+    private LocalTimeStampAuthority(KeyPair keyPair, String subjectDN) throws Exception {
+        this(keyPair.getPrivate(), selfSignedCertificate(keyPair, subjectDN));
+    }
+
+    /**
+     * Creates an authority signing with the given key. The certificate must
+     * allow the time stamping extended key usage.
+     */
+    public LocalTimeStampAuthority(PrivateKey privateKey, X509Certificate certificate) throws Exception {
+        this.certificate = certificate;
+        this.tokenGenerator = new TimeStampTokenGenerator(
+                new JcaSimpleSignerInfoGeneratorBuilder().build("SHA256withRSA", privateKey, certificate),
+                new JcaDigestCalculatorProviderBuilder().build().get(
+                        new AlgorithmIdentifier(TSPAlgorithms.SHA256)),
+                TSA_POLICY
+        );
+        this.tokenGenerator.addCertificates(new JcaCertStore(List.of(certificate)));
+        this.tokenGenerator.setResolution(TimeStampTokenGenerator.R_MILLISECONDS);
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        return keyPairGenerator.generateKeyPair();
+    }
+
+    private static X509Certificate selfSignedCertificate(KeyPair keyPair, String subjectDN) throws Exception {
+        X500Name subject = new X500Name(subjectDN);
+        Instant now = Instant.now();
+        X509CertificateHolder holder = new JcaX509v3CertificateBuilder(
+                subject,
+                new BigInteger(64, new SecureRandom()),
+                Date.from(now.minus(1, ChronoUnit.DAYS)),
+                Date.from(now.plus(3650, ChronoUnit.DAYS)),
+                subject,
+                keyPair.getPublic())
+                .addExtension(Extension.extendedKeyUsage, true,
+                        new ExtendedKeyUsage(KeyPurposeId.id_kp_timeStamping))
+                .addExtension(Extension.keyUsage, true,
+                        new KeyUsage(KeyUsage.digitalSignature | KeyUsage.nonRepudiation))
+                .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate()));
+        return new JcaX509CertificateConverter().getCertificate(holder);
+    }
+
+    @Override
+    public synchronized TimeStampToken timestamp(byte[] messageImprint) throws TSPException {
+        TimeStampRequestGenerator requestGenerator = new TimeStampRequestGenerator();
+        requestGenerator.setCertReq(true);
+        TimeStampRequest request = requestGenerator.generate(TSPAlgorithms.SHA256, messageImprint,
+                BigInteger.valueOf(random.nextLong()));
+
+        return tokenGenerator.generate(request, BigInteger.valueOf(serialNumber.incrementAndGet()), new Date());
+    }
+
+    @Override
+    public X509Certificate trustedCertificate() {
+        return certificate;
+    }
+}
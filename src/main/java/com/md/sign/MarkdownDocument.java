@@ -1,5 +1,7 @@
 package com.md.sign;
 
+import com.vladsch.flexmark.util.ast.Document;
+
 import java.util.Map;
 import java.util.HashMap;
 import java.util.List;
@@ -9,10 +11,16 @@ public class MarkdownDocument {
     private Map<String, Object> frontMatter;
     private String content;
     private final List<DocumentSignature> signatures;
+    private final Map<Canonicalization, CanonicalContent> canonicalForms;
+    private Document ast;
+    private List<DocumentSection> sections;
+    private String cosignature;
+    private int sectionsLevel;
 
     public MarkdownDocument() {
         this.frontMatter = new HashMap<>();
         this.signatures = new ArrayList<>();
+        this.canonicalForms = new HashMap<>();
     }
 
     public Map<String, Object> getFrontMatter() { return frontMatter; }
@@ -20,25 +28,59 @@ public class MarkdownDocument {
         this.frontMatter = frontMatter;
     }
     public String getContent() { return content; }
-    public void setContent(String content) { this.content = content; }
+    public void setContent(String content) {
+        this.content = content;
+        this.canonicalForms.clear();
+        this.ast = null;
+        this.sections = null;
+    }
     public List<DocumentSignature> getSignatures() { return signatures; }
 
+    /**
+     * Returns the Base64 CMS structure shared by all co-signers, or null if the
+     * document has not been co-signed.
+     */
+    public String getCosignature() { return cosignature; }
+    public void setCosignature(String cosignature) {
+        this.cosignature = cosignature;
+    }
+
+    /**
+     * Returns the content in the given canonical form, computed once per form.
+     */
+    public CanonicalContent canonicalContent(Canonicalization canonicalization) {
+        return canonicalForms.computeIfAbsent(canonicalization,
+                c -> ContentCanonicalizer.canonicalize(content, c));
+    }
+
+    /**
+     * Returns the flexmark syntax tree of the body, parsed once and shared by
+     * section splitting and HTML rendering.
+     */
+    public Document getAst() {
+        if (ast == null) {
+            ast = MarkdownSections.parse(content != null ? content : "");
+        }
+        return ast;
+    }
+
+    /**
+     * Returns the body split into sections at headings up to the given level,
+     * split once per level.
+     */
+    public List<DocumentSection> getSections(int maxLevel) {
+        if (sections == null || sectionsLevel != maxLevel) {
+            sections = MarkdownSections.split(getAst(), content != null ? content : "", maxLevel);
+            sectionsLevel = maxLevel;
+        }
+        return sections;
+    }
+
+    /**
+     * Adds a signature. Signatures are kept apart from the remaining front matter
+     * and written out by {@link MarkdownParser#serialize(MarkdownDocument)}.
+     */
     public void addSignature(DocumentSignature signature) {
         this.signatures.add(signature);
-        updateFrontMatter();
-    }
-
-    private void updateFrontMatter() {
-        List<Map<String, Object>> signatureData = new ArrayList<>();
-        for (DocumentSignature sig : signatures) {
-            Map<String, Object> sigMap = new HashMap<>();
-            sigMap.put("signature", sig.signature());
-            sigMap.put("signerDN", sig.signerDN());
-            sigMap.put("expirationDate", sig.expirationDate().toString());
-            sigMap.put("signedAt", sig.signedAt().toString());
-            sigMap.put("metadata", sig.metadata());
-            signatureData.add(sigMap);
-        }
-        frontMatter.put("signatures", signatureData);
     }
 }
\ No newline at end of file
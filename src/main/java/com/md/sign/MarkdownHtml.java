@@ -0,0 +1,69 @@
+package com.md.sign;
+
+import com.vladsch.flexmark.html.AttributeProvider;
+import com.vladsch.flexmark.html.HtmlRenderer;
+import com.vladsch.flexmark.html.IndependentAttributeProviderFactory;
+import com.vladsch.flexmark.html.renderer.LinkResolverContext;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.data.MutableDataSet;
+
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Renders parsed markdown bodies to HTML using flexmark. Raw HTML blocks and
+ * inline HTML in the markdown are escaped, so a signed document cannot inject
+ * markup or scripts into the page that embeds the rendered body. Link and
+ * image targets are limited to relative URLs and the schemes in
+ * {@link #ALLOWED_SCHEMES}; other targets are dropped.
+ */
+public final class MarkdownHtml {
+
+    private static final Set<String> ALLOWED_SCHEMES = Set.of("http", "https", "mailto");
+    private static final Pattern SCHEME = Pattern.compile("^([a-zA-Z][a-zA-Z0-9+.-]*):");
+    private static final Pattern IGNORED_BY_BROWSERS = Pattern.compile("[\\x00-\\x20\\x7F]");
+    private static final String[] URL_ATTRIBUTES = {"href", "src"};
+
+    private MarkdownHtml() {
+    }
+
+    /**
+     * Renderer instances are immutable and thread-safe. Held lazily so the
+     * renderer is only loaded once documents are actually rendered.
+     */
+    private static final class RendererHolder {
+        static final HtmlRenderer RENDERER = HtmlRenderer.builder(
+                        new MutableDataSet().set(HtmlRenderer.ESCAPE_HTML, true))
+                .attributeProviderFactory(new IndependentAttributeProviderFactory() {
+                    @Override
+                    public AttributeProvider apply(LinkResolverContext context) {
+                        return (node, part, attributes) -> {
+                            for (String name : URL_ATTRIBUTES) {
+                                String url = attributes.getValue(name);
+                                if (!url.isEmpty() && !isAllowedUrl(url)) {
+                                    attributes.remove(name);
+                                }
+                            }
+                        };
+                    }
+                })
+                .build();
+    }
+
+    public static String render(Document document) {
+        return RendererHolder.RENDERER.render(document);
+    }
+
+    /**
+     * Returns whether a link target is relative or uses an allowed scheme. The
+     * scheme is compared without case and after removing the whitespace and
+     * control characters that browsers skip, so {@code JaVa\tScript:} is
+     * recognised as well.
+     */
+    static boolean isAllowedUrl(String url) {
+        Matcher scheme = SCHEME.matcher(IGNORED_BY_BROWSERS.matcher(url).replaceAll(""));
+        return !scheme.find() || ALLOWED_SCHEMES.contains(scheme.group(1).toLowerCase(Locale.ROOT));
+    }
+}
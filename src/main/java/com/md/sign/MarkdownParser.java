@@ -2,12 +2,15 @@ package com.md.sign;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.yaml.snakeyaml.DumperOptions;
 import org.yaml.snakeyaml.LoaderOptions;
 import org.yaml.snakeyaml.Yaml;
 import org.springframework.stereotype.Component;
 
+import java.io.Reader;
 import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Base64;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -24,29 +27,26 @@ public class MarkdownParser {
         MarkdownDocument doc = new MarkdownDocument();
 
         try {
-            if (markdown == null || markdown.trim().isEmpty()) {
+            if (markdown == null || markdown.isBlank()) {
                 logger.warn("Empty markdown content");
                 return doc;
             }
 
-            logger.debug("Parsing markdown content of length: {}", markdown.length());
             Matcher matcher = FRONT_MATTER_PATTERN.matcher(markdown);
 
             if (matcher.find()) {
-                String yamlString = matcher.group(1);
                 String content = matcher.group(2);
 
-                logger.debug("Found YAML front matter: {}", yamlString);
-
                 LoaderOptions options = new LoaderOptions();
                 options.setAllowDuplicateKeys(false);
                 Yaml yaml = new Yaml(options);
-                Map<String, Object> frontMatter = yaml.load(yamlString);
+                Map<String, Object> frontMatter = yaml.load(
+                        new RegionReader(markdown, matcher.start(1), matcher.end(1)));
 
                 if (frontMatter != null) {
                     // Parse signatures section
                     if (frontMatter.containsKey("signatures")) {
-                        Object signaturesObj = frontMatter.get("signatures");
+                        Object signaturesObj = frontMatter.remove("signatures");
                         if (signaturesObj instanceof List) {
                             List<Map<String, Object>> signatures = (List<Map<String, Object>>) signaturesObj;
                             for (Map<String, Object> sigMap : signatures) {
@@ -54,6 +54,10 @@ public class MarkdownParser {
                             }
                         }
                     }
+                    Object cosignature = frontMatter.remove("cosignature");
+                    if (cosignature instanceof String) {
+                        doc.setCosignature((String) cosignature);
+                    }
 
                     doc.setFrontMatter(frontMatter);
                 } else {
@@ -62,7 +66,6 @@ public class MarkdownParser {
 
                 doc.setContent(content.trim());
             } else {
-                logger.debug("No front matter found, treating entire content as markdown");
                 doc.setContent(markdown.trim());
             }
 
@@ -97,11 +100,14 @@ public class MarkdownParser {
                     signerDN,
                     expirationDate,
                     metadata,
-                    signedAt
+                    signedAt,
+                    parseMerkleProof(sigMap.get("merkleProof")),
+                    (String) sigMap.get("canonicalization"),
+                    parseSections(sigMap.get("sections")),
+                    (String) sigMap.get("signerInfo")
             );
 
             doc.addSignature(documentSignature);
-            logger.debug("Added signature for DN: {}", signerDN);
 
         } catch (Exception e) {
             logger.error("Error parsing signature data: {}", e.getMessage());
@@ -109,6 +115,37 @@ public class MarkdownParser {
         }
     }
 
+    @SuppressWarnings("unchecked")
+    private static MerkleProof parseMerkleProof(Object value) {
+        if (!(value instanceof Map)) {
+            return null;
+        }
+        Map<String, Object> proofMap = (Map<String, Object>) value;
+        List<byte[]> path = new ArrayList<>();
+        Object pathObj = proofMap.get("path");
+        if (pathObj instanceof List) {
+            for (Object sibling : (List<Object>) pathObj) {
+                path.add(Base64.getDecoder().decode((String) sibling));
+            }
+        }
+        return new MerkleProof(
+                ((Number) proofMap.get("index")).intValue(),
+                ((Number) proofMap.get("leafCount")).intValue(),
+                path
+        );
+    }
+
+    private static List<String> parseSections(Object value) {
+        if (!(value instanceof List<?> list)) {
+            return null;
+        }
+        List<String> sections = new ArrayList<>(list.size());
+        for (Object section : list) {
+            sections.add(String.valueOf(section));
+        }
+        return sections;
+    }
+
     private static Instant parseInstant(Object value) {
         if (value == null) return null;
         try {
@@ -123,41 +160,37 @@ public class MarkdownParser {
     }
 
     public static String serialize(MarkdownDocument doc) {
-        StringBuilder sb = new StringBuilder();
+        List<DocumentSignature> signatures = doc.getSignatures();
+        int estimatedLength = doc.getContent().length() + 64;
+        if (doc.getCosignature() != null) {
+            estimatedLength += doc.getCosignature().length() + 16;
+        }
+        for (DocumentSignature sig : signatures) {
+            estimatedLength += (sig.signature() != null ? sig.signature().length() : 0) + 512;
+        }
+        StringBuilder sb = new StringBuilder(estimatedLength);
 
         try {
             Map<String, Object> frontMatter = new HashMap<>(doc.getFrontMatter());
-
-            // Prepare signatures data
-            if (!doc.getSignatures().isEmpty()) {
-                List<Map<String, Object>> signaturesData = new ArrayList<>();
-
-                for (DocumentSignature sig : doc.getSignatures()) {
-                    Map<String, Object> sigMap = new HashMap<>();
-                    sigMap.put("signature", sig.signature());
-                    sigMap.put("signerDN", sig.signerDN());
-
-                    if (sig.expirationDate() != null) {
-                        sigMap.put("expirationDate", sig.expirationDate().toString());
-                    }
-                    if (sig.signedAt() != null) {
-                        sigMap.put("signedAt", sig.signedAt().toString());
-                    }
-                    if (!sig.metadata().isEmpty()) {
-                        sigMap.put("metadata", sig.metadata());
-                    }
-
-                    signaturesData.add(sigMap);
-                }
-
-                frontMatter.put("signatures", signaturesData);
-            }
+            frontMatter.remove("signatures");
+            frontMatter.remove("cosignature");
 
             // Add front matter if not empty
-            if (!frontMatter.isEmpty()) {
+            if (!frontMatter.isEmpty() || !signatures.isEmpty()) {
                 sb.append("---\n");
-                Yaml yaml = new Yaml();
-                sb.append(yaml.dump(frontMatter));
+                if (!frontMatter.isEmpty()) {
+                    // Block style, as the signatures section is appended in block style
+                    DumperOptions dumperOptions = new DumperOptions();
+                    dumperOptions.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+                    Yaml yaml = new Yaml(dumperOptions);
+                    sb.append(yaml.dump(frontMatter));
+                }
+                if (doc.getCosignature() != null) {
+                    sb.append("cosignature: ");
+                    appendSignatureValue(sb, doc.getCosignature());
+                    sb.append('\n');
+                }
+                appendSignatures(sb, signatures);
                 sb.append("---\n\n");
             }
 
@@ -174,4 +207,157 @@ public class MarkdownParser {
 
         return sb.toString();
     }
-}
\ No newline at end of file
+
+    /**
+     * Writes the signatures section as YAML. This is done by hand rather than
+     * through SnakeYAML so that the Base64 signatures, which make up most of the
+     * front matter, are appended once instead of being analyzed, escaped and
+     * copied through the emitter.
+     */
+    private static void appendSignatures(StringBuilder sb, List<DocumentSignature> signatures) {
+        if (signatures.isEmpty()) {
+            return;
+        }
+        sb.append("signatures:\n");
+        for (DocumentSignature sig : signatures) {
+            sb.append("- signerDN: ");
+            appendQuoted(sb, sig.signerDN());
+            if (sig.signature() != null) {
+                sb.append("\n  signature: ");
+                appendSignatureValue(sb, sig.signature());
+            }
+            if (sig.signerInfo() != null) {
+                sb.append("\n  signerInfo: ");
+                appendQuoted(sb, sig.signerInfo());
+            }
+
+            if (sig.expirationDate() != null) {
+                sb.append("\n  expirationDate: '").append(sig.expirationDate()).append('\'');
+            }
+            if (sig.signedAt() != null) {
+                sb.append("\n  signedAt: '").append(sig.signedAt()).append('\'');
+            }
+            if (sig.canonicalization() != null) {
+                sb.append("\n  canonicalization: ");
+                appendQuoted(sb, sig.canonicalization());
+            }
+            if (sig.sections() != null) {
+                sb.append("\n  sections: [");
+                for (int i = 0; i < sig.sections().size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    appendQuoted(sb, sig.sections().get(i));
+                }
+                sb.append(']');
+            }
+            Map<String, String> metadata = sig.metadata();
+            if (!metadata.isEmpty()) {
+                sb.append("\n  metadata:");
+                for (Map.Entry<String, String> entry : metadata.entrySet()) {
+                    sb.append("\n    ");
+                    appendQuoted(sb, entry.getKey());
+                    sb.append(": ");
+                    appendQuoted(sb, entry.getValue());
+                }
+            }
+            MerkleProof proof = sig.merkleProof();
+            if (proof != null) {
+                sb.append("\n  merkleProof:\n    index: ").append(proof.index())
+                        .append("\n    leafCount: ").append(proof.leafCount())
+                        .append("\n    path: [");
+                for (int i = 0; i < proof.path().size(); i++) {
+                    if (i > 0) {
+                        sb.append(", ");
+                    }
+                    sb.append(Base64.getEncoder().encodeToString(proof.path().get(i)));
+                }
+                sb.append(']');
+            }
+            sb.append('\n');
+        }
+    }
+
+    private static void appendSignatureValue(StringBuilder sb, String value) {
+        if (isBase64(value)) {
+            sb.append(value);
+        } else {
+            appendQuoted(sb, value);
+        }
+    }
+
+    private static boolean isBase64(String value) {
+        if (value == null || value.isEmpty()) {
+            return false;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (!((c >= 'A' && c <= 'Z') || (c >= 'a' && c <= 'z') || (c >= '0' && c <= '9')
+                    || c == '+' || c == '/' || c == '=')) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Writes a double-quoted YAML scalar. Line breaks and every code point outside
+     * YAML's printable set, including lone surrogates, are written as escapes.
+     */
+    private static void appendQuoted(StringBuilder sb, String value) {
+        if (value == null) {
+            sb.append("null");
+            return;
+        }
+        sb.append('"');
+        for (int i = 0; i < value.length(); ) {
+            int c = value.codePointAt(i);
+            i += Character.charCount(c);
+            if (c == '"' || c == '\\') {
+                sb.append('\\').appendCodePoint(c);
+            } else if (isPrintableInline(c)) {
+                sb.appendCodePoint(c);
+            } else {
+                sb.append(String.format("\\u%04x", c));
+            }
+        }
+        sb.append('"');
+    }
+
+    private static boolean isPrintableInline(int c) {
+        return (c >= 0x20 && c <= 0x7E)
+                || (c >= 0xA0 && c <= 0xD7FF && c != 0x2028 && c != 0x2029)
+                || (c >= 0xE000 && c <= 0xFFFD)
+                || c >= 0x10000;
+    }
+
+    /**
+     * Reads a region of a string without copying it.
+     */
+    private static final class RegionReader extends Reader {
+        private final String source;
+        private final int end;
+        private int position;
+
+        RegionReader(String source, int start, int end) {
+            this.source = source;
+            this.position = start;
+            this.end = end;
+        }
+
+        @Override
+        public int read(char[] buffer, int offset, int length) {
+            if (position >= end) {
+                return -1;
+            }
+            int count = Math.min(length, end - position);
+            source.getChars(position, position + count, buffer, offset);
+            position += count;
+            return count;
+        }
+
+        @Override
+        public void close() {
+        }
+    }
+}
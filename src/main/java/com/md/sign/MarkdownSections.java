@@ -0,0 +1,98 @@
+package com.md.sign;
+
+import com.vladsch.flexmark.ast.Heading;
+import com.vladsch.flexmark.parser.Parser;
+import com.vladsch.flexmark.util.ast.Document;
+import com.vladsch.flexmark.util.ast.Node;
+
+import java.util.*;
+
+/**
+ * Splits a markdown body into sections at its top-level headings using flexmark.
+ * <p>
+ * Section ids are derived from the heading text, lowercased with runs of other
+ * characters replaced by dashes. Repeated ids get a numeric suffix.
+ */
+public final class MarkdownSections {
+
+    public static final String PREAMBLE_ID = "_preamble";
+
+    private MarkdownSections() {
+    }
+
+    /**
+     * Parser instances are immutable and thread-safe. Held lazily so flexmark is
+     * only loaded once sections are actually used.
+     */
+    private static final class ParserHolder {
+        static final Parser PARSER = Parser.builder().build();
+    }
+
+    static Document parse(String content) {
+        return ParserHolder.PARSER.parse(content);
+    }
+
+    /**
+     * Splits the content at headings up to the given level.
+     */
+    public static List<DocumentSection> split(String content, int maxLevel) {
+        return split(parse(content), content, maxLevel);
+    }
+
+    static List<DocumentSection> split(Document document, String content, int maxLevel) {
+        List<DocumentSection> sections = new ArrayList<>();
+        Set<String> usedIds = new HashSet<>();
+
+        int sectionStart = 0;
+        String id = PREAMBLE_ID;
+        String title = null;
+        int level = 0;
+
+        for (Node node = document.getFirstChild(); node != null; node = node.getNext()) {
+            if (node instanceof Heading heading && heading.getLevel() <= maxLevel) {
+                int headingStart = heading.getStartOffset();
+                addSection(sections, id, title, level, content.substring(sectionStart, headingStart));
+
+                sectionStart = headingStart;
+                title = heading.getAnchorRefText();
+                level = heading.getLevel();
+                id = uniqueId(slug(title), usedIds);
+            }
+        }
+        addSection(sections, id, title, level, content.substring(sectionStart));
+        return sections;
+    }
+
+    private static void addSection(List<DocumentSection> sections, String id, String title, int level, String text) {
+        if (id.equals(PREAMBLE_ID) && text.isBlank()) {
+            return;
+        }
+        sections.add(new DocumentSection(id, title, level, text));
+    }
+
+    private static String slug(String title) {
+        StringBuilder slug = new StringBuilder(title.length());
+        boolean dash = false;
+        for (int i = 0; i < title.length(); i++) {
+            char c = Character.toLowerCase(title.charAt(i));
+            if (Character.isLetterOrDigit(c)) {
+                if (dash && slug.length() > 0) {
+                    slug.append('-');
+                }
+                slug.append(c);
+                dash = false;
+            } else {
+                dash = true;
+            }
+        }
+        return slug.length() > 0 ? slug.toString() : "section";
+    }
+
+    private static String uniqueId(String slug, Set<String> usedIds) {
+        String id = slug;
+        for (int n = 2; !usedIds.add(id); n++) {
+            id = slug + "-" + n;
+        }
+        return id;
+    }
+}
@@ -0,0 +1,52 @@
+package com.md.sign;
+
+import org.bouncycastle.asn1.*;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Inclusion proof of one leaf in a {@link MerkleTree}.
+ * <p>
+ * The sibling path is ordered from the leaf level upwards. Whether a sibling is
+ * on the left or the right follows from the leaf index and the leaf count.
+ */
+public record MerkleProof(int index, int leafCount, List<byte[]> path) {
+
+    public MerkleProof {
+        if (leafCount < 1 || index < 0 || index >= leafCount) {
+            throw new IllegalArgumentException("Invalid Merkle proof position " + index + " of " + leafCount);
+        }
+        path = List.copyOf(path);
+    }
+
+    /**
+     * Encodes the proof as {@code SEQUENCE { index INTEGER, leafCount INTEGER, path SEQUENCE OF OCTET STRING }}.
+     */
+    public ASN1Primitive toASN1Primitive() {
+        ASN1EncodableVector siblings = new ASN1EncodableVector();
+        for (byte[] sibling : path) {
+            siblings.add(new DEROctetString(sibling));
+        }
+        return new DERSequence(new ASN1Encodable[]{
+                new ASN1Integer(index),
+                new ASN1Integer(leafCount),
+                new DERSequence(siblings)
+        });
+    }
+
+    public static MerkleProof fromASN1(ASN1Encodable encodable) {
+        ASN1Sequence sequence = ASN1Sequence.getInstance(encodable);
+        if (sequence.size() != 3) {
+            throw new IllegalArgumentException("Malformed Merkle proof");
+        }
+        int index = ASN1Integer.getInstance(sequence.getObjectAt(0)).intValueExact();
+        int leafCount = ASN1Integer.getInstance(sequence.getObjectAt(1)).intValueExact();
+
+        List<byte[]> path = new ArrayList<>();
+        for (ASN1Encodable sibling : ASN1Sequence.getInstance(sequence.getObjectAt(2))) {
+            path.add(ASN1OctetString.getInstance(sibling).getOctets());
+        }
+        return new MerkleProof(index, leafCount, path);
+    }
+}
@@ -0,0 +1,127 @@
+package com.md.sign;
+
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Binary SHA-256 Merkle tree over a list of leaf digests.
+ * <p>
+ * Leaf digests are hashed as {@code SHA-256(0x00 || leaf)} and inner nodes as
+ * {@code SHA-256(0x01 || left || right)}, so an inner node can never be passed
+ * off as a leaf. When a level has an odd number of nodes the last one is carried
+ * up unchanged.
+ */
+public final class MerkleTree {
+
+    private static final byte LEAF_PREFIX = 0x00;
+    private static final byte NODE_PREFIX = 0x01;
+
+    private final List<byte[][]> levels;
+
+    private MerkleTree(List<byte[][]> levels) {
+        this.levels = levels;
+    }
+
+    /**
+     * Builds a tree over the given SHA-256 leaf digests, in order.
+     */
+    public static MerkleTree build(List<byte[]> leaves) {
+        if (leaves.isEmpty()) {
+            throw new IllegalArgumentException("Merkle tree needs at least one leaf");
+        }
+        MessageDigest digest = Digests.newSha256();
+        List<byte[][]> levels = new ArrayList<>();
+        byte[][] level = new byte[leaves.size()][];
+        for (int i = 0; i < level.length; i++) {
+            level[i] = hashLeaf(digest, leaves.get(i));
+        }
+        levels.add(level);
+
+        while (level.length > 1) {
+            byte[][] parent = new byte[(level.length + 1) / 2][];
+            for (int i = 0; i < parent.length; i++) {
+                int left = i * 2;
+                parent[i] = left + 1 < level.length
+                        ? hashNode(digest, level[left], level[left + 1])
+                        : level[left];
+            }
+            levels.add(parent);
+            level = parent;
+        }
+        return new MerkleTree(levels);
+    }
+
+    public byte[] root() {
+        return levels.get(levels.size() - 1)[0].clone();
+    }
+
+    public int size() {
+        return levels.get(0).length;
+    }
+
+    /**
+     * Returns the inclusion proof for the leaf at the given index.
+     */
+    public MerkleProof proof(int index) {
+        if (index < 0 || index >= size()) {
+            throw new IndexOutOfBoundsException("Leaf index " + index + " out of range for " + size() + " leaves");
+        }
+        List<byte[]> path = new ArrayList<>();
+        int position = index;
+        for (int depth = 0; depth < levels.size() - 1; depth++) {
+            byte[][] level = levels.get(depth);
+            int sibling = position ^ 1;
+            if (sibling < level.length) {
+                path.add(level[sibling]);
+            }
+            position /= 2;
+        }
+        return new MerkleProof(index, size(), path);
+    }
+
+    /**
+     * Recomputes the root from a leaf digest and its inclusion proof.
+     *
+     * @throws IllegalArgumentException if the proof does not fit its own leaf count
+     */
+    public static byte[] rootFromProof(byte[] leaf, MerkleProof proof) {
+        MessageDigest digest = Digests.newSha256();
+        byte[] node = hashLeaf(digest, leaf);
+        int position = proof.index();
+        int width = proof.leafCount();
+        int step = 0;
+
+        while (width > 1) {
+            int sibling = position ^ 1;
+            if (sibling < width) {
+                if (step >= proof.path().size()) {
+                    throw new IllegalArgumentException("Merkle proof is too short");
+                }
+                byte[] other = proof.path().get(step++);
+                node = (position & 1) == 0
+                        ? hashNode(digest, node, other)
+                        : hashNode(digest, other, node);
+            }
+            position /= 2;
+            width = (width + 1) / 2;
+        }
+        if (step != proof.path().size()) {
+            throw new IllegalArgumentException("Merkle proof is too long");
+        }
+        return node;
+    }
+
+    private static byte[] hashLeaf(MessageDigest digest, byte[] leaf) {
+        digest.update(LEAF_PREFIX);
+        digest.update(leaf);
+        return digest.digest();
+    }
+
+    private static byte[] hashNode(MessageDigest digest, byte[] left, byte[] right) {
+        digest.update(NODE_PREFIX);
+        digest.update(left);
+        digest.update(right);
+        return digest.digest();
+    }
+}
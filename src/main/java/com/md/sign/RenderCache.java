@@ -0,0 +1,75 @@
+package com.md.sign;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+
+/**
+ * Rendered and verified documents by digest of the submitted markdown, bounded
+ * by the total number of cached HTML characters.
+ * <p>
+ * An entry records the verification cache generation it was verified in and
+ * expires with the earliest signature or signer certificate of the document,
+ * so results are not served after the trust anchors change or a signature
+ * expires. Only documents whose signatures are all valid are cached.
+ */
+@Component
+public class RenderCache {
+
+    private record Entry(RenderedDocument document, long generation, long expiresAtMillis) {
+    }
+
+    private final long maxCachedChars;
+    private final LinkedHashMap<String, Entry> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedChars;
+
+    public RenderCache(@Value("${signature.render.cache.max-chars:16777216}") long maxCachedChars) {
+        this.maxCachedChars = maxCachedChars;
+    }
+
+    /**
+     * Returns the cached document, or null if it is missing, expired or was
+     * verified in an earlier generation.
+     */
+    public RenderedDocument get(byte[] markdownDigest, long generation) {
+        String key = Digests.toHex(markdownDigest);
+        synchronized (cache) {
+            Entry entry = cache.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.generation() != generation || entry.expiresAtMillis() <= System.currentTimeMillis()) {
+                remove(key);
+                return null;
+            }
+            return entry.document();
+        }
+    }
+
+    public void put(byte[] markdownDigest, RenderedDocument document, long expiresAtMillis, long generation) {
+        int chars = document.html().length();
+        if (chars > maxCachedChars) {
+            return;
+        }
+        String key = Digests.toHex(markdownDigest);
+        synchronized (cache) {
+            remove(key);
+            cache.put(key, new Entry(document, generation, expiresAtMillis));
+            cachedChars += chars;
+            Iterator<Entry> eldest = cache.values().iterator();
+            while (cachedChars > maxCachedChars && eldest.hasNext()) {
+                cachedChars -= eldest.next().document().html().length();
+                eldest.remove();
+            }
+        }
+    }
+
+    private void remove(String key) {
+        Entry removed = cache.remove(key);
+        if (removed != null) {
+            cachedChars -= removed.document().html().length();
+        }
+    }
+}
@@ -0,0 +1,13 @@
+package com.md.sign;
+
+import java.util.List;
+
+/**
+ * The HTML body of a signed markdown document with the verification results of
+ * its signatures. The HTML is null unless every signature is valid. When the
+ * document only carries section signatures, the HTML contains just the signed
+ * sections, listed in {@code sections}; otherwise {@code sections} is null.
+ */
+public record RenderedDocument(String html, List<SignatureVerificationResult> signatures,
+                               List<String> sections) {
+}
@@ -0,0 +1,311 @@
+package com.md.sign;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Head-sampled per-request tracing of the signing and verification stages.
+ * <p>
+ * Whether a request is traced is decided once when it begins. For requests
+ * that are not sampled, {@link #start()} and {@link #end(Stage, long)} return
+ * without allocating or reading the clock. Sampled requests accumulate stage
+ * durations as raw nanosecond counters on the request thread and are
+ * published to a lock-free ring buffer when they finish. A background thread
+ * drains the buffer, converts the traces into {@link TraceRecord}s, updates
+ * per-stage statistics and optionally logs them, so no formatting happens on
+ * the request path.
+ * <p>
+ * Work done for a request on another thread, such as a sign batch, is traced
+ * by passing the request's {@link TraceLink} along and running that work in a
+ * {@link #link} scope. Stages timed in the scope are recorded once and added to
+ * every linked trace when the scope closes.
+ */
+@Component
+public class RequestTracer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestTracer.class);
+    private static final Logger traceLogger = LoggerFactory.getLogger("com.md.sign.trace");
+
+    /**
+     * Value returned by {@link #start()} when the current request is not traced.
+     */
+    public static final long NOT_SAMPLED = Long.MIN_VALUE;
+
+    public enum Stage {
+        PARSE, CANONICALIZE, MATERIALS, SIGN, TIMESTAMP, CHAIN_VALIDATION, VERIFY, SERIALIZE, RENDER
+    }
+
+    private static final Stage[] STAGES = Stage.values();
+
+    /**
+     * Stage counters of one sampled request, only touched by the request thread
+     * until it is published.
+     */
+    private static final class RequestTrace {
+        final String operation;
+        final long startEpochMillis = System.currentTimeMillis();
+        final long startNanos = System.nanoTime();
+        final long[] stageNanos = new long[STAGES.length];
+        final boolean[] stageRan = new boolean[STAGES.length];
+        long totalNanos;
+
+        RequestTrace(String operation) {
+            this.operation = operation;
+        }
+    }
+
+    /**
+     * Handle on a sampled request's trace, passed along with work handed to another thread.
+     */
+    public static final class TraceLink {
+        private final RequestTrace trace;
+
+        private TraceLink(RequestTrace trace) {
+            this.trace = trace;
+        }
+    }
+
+    /**
+     * Stages timed on a thread on behalf of linked traces. Closing it adds the
+     * stages to each linked trace and restores the thread's previous trace.
+     */
+    public static final class Scope implements AutoCloseable {
+        private final RequestTrace previous;
+        private final RequestTrace shared;
+        private final Collection<RequestTrace> linked;
+
+        private Scope(RequestTrace previous, RequestTrace shared, Collection<RequestTrace> linked) {
+            this.previous = previous;
+            this.shared = shared;
+            this.linked = linked;
+        }
+
+        @Override
+        public void close() {
+            if (shared != null) {
+                for (RequestTrace trace : linked) {
+                    for (int i = 0; i < STAGES.length; i++) {
+                        if (shared.stageRan[i]) {
+                            trace.stageNanos[i] += shared.stageNanos[i];
+                            trace.stageRan[i] = true;
+                        }
+                    }
+                }
+            }
+            if (previous != null) {
+                CURRENT.set(previous);
+            } else {
+                CURRENT.remove();
+            }
+        }
+    }
+
+    private static final ThreadLocal<RequestTrace> CURRENT = new ThreadLocal<>();
+
+    private final double sampleRate;
+    private final int recentLimit;
+    private final boolean logTraces;
+    private final TraceRingBuffer<RequestTrace> buffer;
+    private final ScheduledExecutorService exporter;
+
+    private final Deque<TraceRecord> recent = new ArrayDeque<>();
+    private final long[] stageCounts = new long[STAGES.length];
+    private final long[] stageTotalMicros = new long[STAGES.length];
+    private final long[] stageMaxMicros = new long[STAGES.length];
+    private long exported;
+
+    public RequestTracer(@Value("${signature.tracing.sample-rate:0.01}") double sampleRate,
+                         @Value("${signature.tracing.buffer-size:4096}") int bufferSize,
+                         @Value("${signature.tracing.recent:256}") int recentLimit,
+                         @Value("${signature.tracing.export.interval.ms:1000}") long exportIntervalMillis,
+                         @Value("${signature.tracing.log:false}") boolean logTraces) {
+        this.sampleRate = sampleRate;
+        this.recentLimit = recentLimit;
+        this.logTraces = logTraces;
+        this.buffer = new TraceRingBuffer<>(bufferSize);
+        this.exporter = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "trace-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        if (sampleRate > 0) {
+            exporter.scheduleWithFixedDelay(this::export, exportIntervalMillis, exportIntervalMillis,
+                    TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Begins a request on the current thread and decides whether it is traced.
+     */
+    public void begin(String operation) {
+        if (sampleRate > 0 && (sampleRate >= 1 || ThreadLocalRandom.current().nextDouble() < sampleRate)) {
+            CURRENT.set(new RequestTrace(operation));
+        } else {
+            CURRENT.remove();
+        }
+    }
+
+    /**
+     * Finishes the current request and queues its trace for export if it was sampled.
+     */
+    public void finish() {
+        RequestTrace trace = CURRENT.get();
+        if (trace == null) {
+            return;
+        }
+        CURRENT.remove();
+        trace.totalNanos = System.nanoTime() - trace.startNanos;
+        buffer.publish(trace);
+    }
+
+    /**
+     * Returns a link to the current request's trace, or null if it is not sampled.
+     */
+    public TraceLink current() {
+        RequestTrace trace = CURRENT.get();
+        return trace != null ? new TraceLink(trace) : null;
+    }
+
+    /**
+     * Times the stages on this thread for the linked request until the scope is closed.
+     *
+     * @param link the request's trace, or null if it is not sampled
+     */
+    public Scope link(TraceLink link) {
+        return link(Collections.singletonList(link));
+    }
+
+    /**
+     * Times the stages on this thread once for all linked requests until the
+     * scope is closed. The linked requests must wait for the scope to close
+     * before they finish.
+     *
+     * @param links the requests' traces, with null for those not sampled
+     */
+    public Scope link(Collection<TraceLink> links) {
+        Set<RequestTrace> linked = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (TraceLink link : links) {
+            if (link != null) {
+                linked.add(link.trace);
+            }
+        }
+        RequestTrace previous = CURRENT.get();
+        RequestTrace shared = null;
+        if (linked.isEmpty()) {
+            CURRENT.remove();
+        } else {
+            shared = new RequestTrace("linked");
+            CURRENT.set(shared);
+        }
+        return new Scope(previous, shared, linked);
+    }
+
+    /**
+     * Starts timing a stage.
+     *
+     * @return the start time to pass to {@link #end(Stage, long)}, or {@link #NOT_SAMPLED}
+     */
+    public long start() {
+        return CURRENT.get() != null ? System.nanoTime() : NOT_SAMPLED;
+    }
+
+    /**
+     * Adds the time since {@code startNanos} to the stage of the current request.
+     */
+    public void end(Stage stage, long startNanos) {
+        if (startNanos == NOT_SAMPLED) {
+            return;
+        }
+        RequestTrace trace = CURRENT.get();
+        if (trace != null) {
+            trace.stageNanos[stage.ordinal()] += System.nanoTime() - startNanos;
+            trace.stageRan[stage.ordinal()] = true;
+        }
+    }
+
+    /**
+     * Returns the stage statistics and up to {@code limit} of the most recent traces, newest first.
+     */
+    public TraceReport report(int limit) {
+        export();
+        synchronized (recent) {
+            Map<Stage, TraceReport.StageStatistics> stages = new EnumMap<>(Stage.class);
+            for (Stage stage : STAGES) {
+                int i = stage.ordinal();
+                if (stageCounts[i] > 0) {
+                    stages.put(stage, new TraceReport.StageStatistics(
+                            stageCounts[i], stageTotalMicros[i], stageMaxMicros[i]));
+                }
+            }
+            List<TraceRecord> traces = new ArrayList<>(Math.min(limit, recent.size()));
+            for (TraceRecord trace : recent) {
+                if (traces.size() >= limit) {
+                    break;
+                }
+                traces.add(trace);
+            }
+            return new TraceReport(sampleRate, exported, buffer.dropped(), stages, traces);
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        exporter.shutdown();
+        export();
+    }
+
+    private void export() {
+        try {
+            buffer.drain(this::exportTrace);
+        } catch (RuntimeException e) {
+            logger.warn("Failed to export traces: {}", e.getMessage());
+        }
+    }
+
+    private void exportTrace(RequestTrace trace) {
+        Map<Stage, Long> stageMicros = new EnumMap<>(Stage.class);
+        for (Stage stage : STAGES) {
+            if (trace.stageRan[stage.ordinal()]) {
+                stageMicros.put(stage, TimeUnit.NANOSECONDS.toMicros(trace.stageNanos[stage.ordinal()]));
+            }
+        }
+        TraceRecord record = new TraceRecord(trace.operation, Instant.ofEpochMilli(trace.startEpochMillis),
+                TimeUnit.NANOSECONDS.toMicros(trace.totalNanos), stageMicros);
+
+        synchronized (recent) {
+            exported++;
+            stageMicros.forEach((stage, micros) -> {
+                int i = stage.ordinal();
+                stageCounts[i]++;
+                stageTotalMicros[i] += micros;
+                stageMaxMicros[i] = Math.max(stageMaxMicros[i], micros);
+            });
+            recent.addFirst(record);
+            if (recent.size() > recentLimit) {
+                recent.removeLast();
+            }
+        }
+        if (logTraces) {
+            traceLogger.info("{} {} us {}", record.operation(), record.totalMicros(), record.stageMicros());
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package com.md.sign;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * Computes section digests and the Merkle root a section signature covers.
+ * <p>
+ * Section digests are cached by canonicalization and section text, bounded by
+ * the total number of cached characters. A lookup compares the full text, so
+ * only sections that actually changed are canonicalized and hashed again.
+ * <p>
+ * The root is built over one leaf per covered section,
+ * {@code SHA-256(id || 0x00 || sectionDigest)}, in the order the signature lists them.
+ */
+@Component
+public class SectionDigester {
+
+    private record CacheKey(Canonicalization canonicalization, String text) {
+    }
+
+    private final long maxCachedChars;
+    private final LinkedHashMap<CacheKey, byte[]> cache = new LinkedHashMap<>(256, 0.75f, true);
+    private long cachedChars;
+
+    public SectionDigester(@Value("${signature.sections.cache.max-chars:16777216}") long maxCachedChars) {
+        this.maxCachedChars = maxCachedChars;
+    }
+
+    /**
+     * Returns the digest of the canonicalized section text.
+     */
+    public byte[] digest(DocumentSection section, Canonicalization canonicalization) {
+        CacheKey key = new CacheKey(canonicalization, section.text());
+        synchronized (cache) {
+            byte[] cached = cache.get(key);
+            if (cached != null) {
+                return cached;
+            }
+        }
+
+        byte[] digest = ContentCanonicalizer.canonicalize(section.text(), canonicalization).digest();
+        if (section.text().length() <= maxCachedChars) {
+            synchronized (cache) {
+                if (cache.put(key, digest) == null) {
+                    cachedChars += section.text().length();
+                }
+                Iterator<CacheKey> eldest = cache.keySet().iterator();
+                while (cachedChars > maxCachedChars && eldest.hasNext()) {
+                    cachedChars -= eldest.next().text().length();
+                    eldest.remove();
+                }
+            }
+        }
+        return digest;
+    }
+
+    /**
+     * Computes the Merkle root over the given sections of a document.
+     *
+     * @throws IllegalArgumentException if a section id does not exist in the document
+     */
+    public byte[] sectionRoot(List<DocumentSection> sections, List<String> sectionIds,
+                              Canonicalization canonicalization) {
+        if (sectionIds.isEmpty()) {
+            throw new IllegalArgumentException("No sections selected");
+        }
+        Map<String, DocumentSection> byId = new HashMap<>();
+        for (DocumentSection section : sections) {
+            byId.put(section.id(), section);
+        }
+
+        MessageDigest leafDigest = Digests.newSha256();
+        List<byte[]> leaves = new ArrayList<>(sectionIds.size());
+        for (String sectionId : sectionIds) {
+            DocumentSection section = byId.get(sectionId);
+            if (section == null) {
+                throw new IllegalArgumentException("Section not found: " + sectionId);
+            }
+            leafDigest.update(sectionId.getBytes(StandardCharsets.UTF_8));
+            leafDigest.update((byte) 0);
+            leafDigest.update(digest(section, canonicalization));
+            leaves.add(leafDigest.digest());
+        }
+        return MerkleTree.build(leaves).root();
+    }
+}
@@ -0,0 +1,7 @@
+package com.md.sign;
+
+/**
+ * Describes a document section and the digest a section signature would cover.
+ */
+public record SectionSummary(String id, String title, int level, String digest) {
+}
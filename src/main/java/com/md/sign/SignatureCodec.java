@@ -0,0 +1,159 @@
+package com.md.sign;
+
+import org.bouncycastle.asn1.ASN1InputStream;
+import org.bouncycastle.asn1.cms.ContentInfo;
+import org.bouncycastle.cms.CMSException;
+import org.bouncycastle.cms.CMSSignedData;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/**
+ * Converts CMS signatures between their front matter Base64 form and BouncyCastle objects.
+ * <p>
+ * Unlike {@link java.util.Base64}, decoding reads the characters in place instead
+ * of copying the string to bytes first, and writes into a per-thread buffer that
+ * is reused across calls. Encoding writes the DER bytes into a reused buffer and
+ * Base64 encodes from there, so a signature costs one allocation for the result.
+ * Buffers above {@value #MAX_REUSED_BUFFER_SIZE} bytes are not kept, so one
+ * oversized signature does not pin memory on every request thread.
+ */
+public final class SignatureCodec {
+
+    private static final char[] ALPHABET =
+            "ABCDEFGHIJKLMNOPQRSTUVWXYZabcdefghijklmnopqrstuvwxyz0123456789+/".toCharArray();
+    private static final int[] DECODE_TABLE = new int[128];
+    private static final int INITIAL_BUFFER_SIZE = 8 * 1024;
+    private static final int MAX_REUSED_BUFFER_SIZE = 64 * 1024;
+
+    static {
+        Arrays.fill(DECODE_TABLE, -1);
+        for (int i = 0; i < ALPHABET.length; i++) {
+            DECODE_TABLE[ALPHABET[i]] = i;
+        }
+    }
+
+    private static final ThreadLocal<byte[]> DECODE_BUFFER =
+            ThreadLocal.withInitial(() -> new byte[INITIAL_BUFFER_SIZE]);
+    private static final ThreadLocal<ReusableOutputStream> ENCODE_BUFFER =
+            ThreadLocal.withInitial(ReusableOutputStream::new);
+
+    private SignatureCodec() {
+    }
+
+    /**
+     * Decodes a Base64 encoded CMS signature into its content info.
+     */
+    public static ContentInfo decode(CharSequence base64) throws CMSException {
+        byte[] buffer = DECODE_BUFFER.get();
+        int maxLength = base64.length() / 4 * 3 + 3;
+        if (maxLength > MAX_REUSED_BUFFER_SIZE) {
+            buffer = new byte[maxLength];
+        } else if (buffer.length < maxLength) {
+            buffer = new byte[Math.min(Math.max(maxLength, buffer.length * 2), MAX_REUSED_BUFFER_SIZE)];
+            DECODE_BUFFER.set(buffer);
+        }
+
+        int length = decodeBase64(base64, buffer);
+        try (ASN1InputStream in = new ASN1InputStream(new ByteArrayInputStream(buffer, 0, length), length)) {
+            return ContentInfo.getInstance(in.readObject());
+        } catch (IOException | IllegalArgumentException e) {
+            throw new CMSException("Malformed signature encoding: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Encodes CMS signed data as a Base64 string.
+     */
+    public static String encode(CMSSignedData signedData) throws IOException {
+        ReusableOutputStream der = ENCODE_BUFFER.get();
+        der.reset();
+        signedData.toASN1Structure().encodeTo(der);
+
+        byte[] ascii = new byte[(der.size() + 2) / 3 * 4];
+        encodeBase64(der.buffer(), der.size(), ascii);
+        if (der.buffer().length > MAX_REUSED_BUFFER_SIZE) {
+            ENCODE_BUFFER.remove();
+        }
+        return new String(ascii, StandardCharsets.ISO_8859_1);
+    }
+
+    /**
+     * Decodes Base64 into {@code dst}, skipping line breaks and spaces.
+     *
+     * @return the number of bytes written
+     */
+    static int decodeBase64(CharSequence src, byte[] dst) {
+        int bits = 0;
+        int bitCount = 0;
+        int length = 0;
+        int padding = 0;
+
+        for (int i = 0; i < src.length(); i++) {
+            char c = src.charAt(i);
+            if (c == '=') {
+                padding++;
+                continue;
+            }
+            if (c == '\n' || c == '\r' || c == ' ') {
+                continue;
+            }
+            int value = c < 128 ? DECODE_TABLE[c] : -1;
+            if (value < 0 || padding > 0) {
+                throw new IllegalArgumentException("Illegal Base64 character at index " + i);
+            }
+            bits = (bits << 6) | value;
+            bitCount += 6;
+            if (bitCount >= 8) {
+                bitCount -= 8;
+                dst[length++] = (byte) (bits >> bitCount);
+            }
+        }
+        if (bitCount >= 6) {
+            throw new IllegalArgumentException("Truncated Base64 input");
+        }
+        if (padding > 0 && padding != bitCount / 2) {
+            throw new IllegalArgumentException("Incorrect Base64 padding");
+        }
+        return length;
+    }
+
+    /**
+     * Encodes the first {@code length} bytes of {@code src} as padded Base64 into {@code dst}.
+     */
+    static void encodeBase64(byte[] src, int length, byte[] dst) {
+        int out = 0;
+        int i = 0;
+        for (; i + 2 < length; i += 3) {
+            int bits = (src[i] & 0xFF) << 16 | (src[i + 1] & 0xFF) << 8 | (src[i + 2] & 0xFF);
+            dst[out++] = (byte) ALPHABET[bits >>> 18];
+            dst[out++] = (byte) ALPHABET[(bits >>> 12) & 0x3F];
+            dst[out++] = (byte) ALPHABET[(bits >>> 6) & 0x3F];
+            dst[out++] = (byte) ALPHABET[bits & 0x3F];
+        }
+        int remaining = length - i;
+        if (remaining > 0) {
+            int bits = (src[i] & 0xFF) << 16 | (remaining == 2 ? (src[i + 1] & 0xFF) << 8 : 0);
+            dst[out++] = (byte) ALPHABET[bits >>> 18];
+            dst[out++] = (byte) ALPHABET[(bits >>> 12) & 0x3F];
+            dst[out++] = remaining == 2 ? (byte) ALPHABET[(bits >>> 6) & 0x3F] : (byte) '=';
+            dst[out] = (byte) '=';
+        }
+    }
+
+    /**
+     * Byte array output stream that exposes its buffer instead of copying it.
+     */
+    private static final class ReusableOutputStream extends ByteArrayOutputStream {
+        ReusableOutputStream() {
+            super(INITIAL_BUFFER_SIZE);
+        }
+
+        byte[] buffer() {
+            return buf;
+        }
+    }
+}
@@ -6,10 +6,18 @@ import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.core.io.ClassPathResource;
 import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.util.ResourceUtils;
 import org.springframework.beans.factory.annotation.Value;
 
 import java.io.InputStream;
+import java.net.URI;
+import java.nio.file.Path;
 import java.security.KeyStore;
+import java.security.PrivateKey;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.util.Base64;
 import java.util.Enumeration;
 
 @Configuration
@@ -26,36 +34,122 @@ public class SignatureConfig {
     @Value("${signature.keystore.alias}")
     private String keystoreAlias;
 
+    @Value("${signature.tsa.url:}")
+    private String tsaUrl;
+
+    @Value("${signature.tsa.timeout.ms:5000}")
+    private long tsaTimeoutMillis;
+
+    @Value("${signature.tsa.keystore.path:}")
+    private String tsaKeystorePath;
+
+    @Value("${signature.tsa.keystore.password:}")
+    private String tsaKeystorePassword;
+
+    @Value("${signature.tsa.keystore.alias:}")
+    private String tsaKeystoreAlias;
+
+    @Value("${signature.cache.shared.path:}")
+    private String sharedCachePath;
+
+    @Value("${signature.cache.shared.key:}")
+    private String sharedCacheKey;
+
+    @Value("${signature.cache.shared.sweep.interval.ms:600000}")
+    private long sharedCacheSweepIntervalMillis;
+
+    /**
+     * Loads the signing keystore. Plain paths are resolved on the classpath,
+     * while paths with a prefix such as {@code file:} go through the resource loader.
+     */
     @Bean
-    public KeyStore keyStore() throws Exception {
-        KeyStore keyStore = KeyStore.getInstance("PKCS12");
-        Resource resource = new ClassPathResource(keystorePath);
+    public KeyStore keyStore(ResourceLoader resourceLoader) throws Exception {
+        KeyStore keyStore = loadKeyStore(resourceLoader, keystorePath, keystorePassword);
+        logger.info("Successfully loaded keystore from: {}", keystorePath);
 
-        if (!resource.exists()) {
+        Enumeration<String> aliases = keyStore.aliases();
+        while (aliases.hasMoreElements()) {
+            String alias = aliases.nextElement();
+            logger.info("Found alias in keystore: {}", alias);
+        }
+
+        if (!keyStore.containsAlias(keystoreAlias)) {
             throw new IllegalStateException(
-                    "Keystore file not found: " + keystorePath
+                    "Keystore does not contain required alias: " + keystoreAlias +
+                            ". Please check your keystore configuration."
             );
         }
 
-        try (InputStream is = resource.getInputStream()) {
-            keyStore.load(is, keystorePassword.toCharArray());
-            logger.info("Successfully loaded keystore from: {}", keystorePath);
+        return keyStore;
+    }
 
-            Enumeration<String> aliases = keyStore.aliases();
-            while (aliases.hasMoreElements()) {
-                String alias = aliases.nextElement();
-                logger.info("Found alias in keystore: {}", alias);
+    /**
+     * Uses the TSA at {@code signature.tsa.url}, or else the embedded one. The
+     * embedded TSA signs with the key from {@code signature.tsa.keystore.*} so
+     * that its tokens stay trusted across restarts and replicas.
+     */
+    @Bean
+    public TimeStampAuthority timeStampAuthority(ResourceLoader resourceLoader) throws Exception {
+        if (tsaUrl.isBlank()) {
+            if (tsaKeystorePath.isBlank()) {
+                logger.warn("No TSA URL or TSA keystore configured, using a local timestamp authority with a "
+                        + "temporary key; its timestamps are not trusted after a restart or on other replicas");
+                return new LocalTimeStampAuthority("CN=Local Timestamp Authority,O=MarkdownSign");
             }
-
-            if (!keyStore.containsAlias(keystoreAlias)) {
+            KeyStore tsaKeyStore = loadKeyStore(resourceLoader, tsaKeystorePath, tsaKeystorePassword);
+            PrivateKey privateKey = (PrivateKey) tsaKeyStore.getKey(tsaKeystoreAlias, tsaKeystorePassword.toCharArray());
+            X509Certificate certificate = (X509Certificate) tsaKeyStore.getCertificate(tsaKeystoreAlias);
+            if (privateKey == null || certificate == null) {
                 throw new IllegalStateException(
-                        "Keystore does not contain required alias: " + keystoreAlias +
-                                ". Please check your keystore configuration."
-                );
+                        "TSA keystore does not contain a key and certificate for alias: " + tsaKeystoreAlias);
             }
+            logger.info("Using local timestamp authority with key from: {}", tsaKeystorePath);
+            return new LocalTimeStampAuthority(privateKey, certificate);
+        }
+        logger.info("Using timestamp authority at: {}", tsaUrl);
+        return new HttpTimeStampAuthority(URI.create(tsaUrl), Duration.ofMillis(tsaTimeoutMillis));
+    }
+
+    /**
+     * Remote tier of the verification caches. Replace this bean to share the
+     * caches through another store.
+     */
+    @Bean
+    public CacheBackend cacheBackend() {
+        if (sharedCachePath.isBlank()) {
+            logger.info("No shared cache path configured, verification caches are local to this replica");
+            return CacheBackend.none();
+        }
+        if (sharedCacheKey.isBlank()) {
+            throw new IllegalStateException(
+                    "signature.cache.shared.key is required when signature.cache.shared.path is set");
+        }
+        logger.info("Sharing verification caches through: {}", sharedCachePath);
+        return new FileCacheBackend(Path.of(sharedCachePath), Base64.getDecoder().decode(sharedCacheKey),
+                sharedCacheSweepIntervalMillis);
+    }
 
-            return keyStore;
+    /**
+     * Loads a PKCS#12 keystore. Plain paths are resolved on the classpath,
+     * while paths with a prefix such as {@code file:} go through the resource loader.
+     */
+    private static KeyStore loadKeyStore(ResourceLoader resourceLoader, String path, String password)
+            throws Exception {
+        Resource resource = ResourceUtils.isUrl(path)
+                ? resourceLoader.getResource(path)
+                : new ClassPathResource(path);
+
+        if (!resource.exists()) {
+            throw new IllegalStateException(
+                    "Keystore file not found: " + path
+            );
+        }
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        try (InputStream is = resource.getInputStream()) {
+            keyStore.load(is, password.toCharArray());
         }
+        return keyStore;
     }
 
     @Bean
@@ -2,20 +2,34 @@ package com.md.sign;
 
 import org.springframework.web.bind.annotation.*;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import java.time.Instant;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
 @RestController
 @RequestMapping("/api/markdown")
 public class SignatureController {
 
+    private static final Set<String> SIGN_PARAMETERS = Set.of("sections", "cosign");
+
     private final DigitalSignatureService signatureService;
+    private final RequestTracer tracer;
+    private final CertificateValidator certificateValidator;
+    private final int maxBatchDocuments;
 
     @Autowired
-    public SignatureController(DigitalSignatureService signatureService) {
+    public SignatureController(DigitalSignatureService signatureService, RequestTracer tracer,
+                               CertificateValidator certificateValidator,
+                               @Value("${signature.batch.max.documents:256}") int maxBatchDocuments) {
         this.signatureService = signatureService;
+        this.tracer = tracer;
+        this.certificateValidator = certificateValidator;
+        this.maxBatchDocuments = maxBatchDocuments;
     }
 
     /**
@@ -23,6 +37,8 @@ public class SignatureController {
      *
      * @param markdown The markdown content to sign
      * @param metadata Optional metadata to include in the signature
+     * @param sections Optional ids of the sections to sign instead of the whole document
+     * @param cosign   Whether to add the signer to the document's shared co-signature
      * @return The signed markdown document
      */
     @PostMapping(value = "/sign",
@@ -30,15 +46,39 @@ public class SignatureController {
             produces = MediaType.TEXT_MARKDOWN_VALUE)
     public ResponseEntity<String> signMarkdown(
             @RequestBody String markdown,
-            @RequestParam(required = false) Map<String, String> metadata) {
+            @RequestParam(required = false) Map<String, String> metadata,
+            @RequestParam(required = false) List<String> sections,
+            @RequestParam(defaultValue = "false") boolean cosign) {
         try {
-            String signedMarkdown = signatureService.signMarkdown(markdown, metadata);
+            String signedMarkdown = signatureService.signMarkdown(
+                    markdown, metadataParams(metadata), sections, cosign);
             return ResponseEntity.ok(signedMarkdown);
         } catch (Exception e) {
             return ResponseEntity.badRequest().body("Failed to sign document: " + e.getMessage());
         }
     }
 
+    /**
+     * Signs several markdown documents with a single signature over their Merkle root.
+     *
+     * @param markdowns The markdown documents to sign
+     * @param metadata  Optional metadata to include in every signature
+     * @return The signed markdown documents, in request order, or 400 if the
+     * batch holds more than {@code signature.batch.max.documents} documents
+     */
+    @PostMapping(value = "/sign/batch",
+            consumes = MediaType.APPLICATION_JSON_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<String>> signMarkdownBatch(
+            @RequestBody List<String> markdowns,
+            @RequestParam(required = false) Map<String, String> metadata) throws Exception {
+        if (markdowns.size() > maxBatchDocuments) {
+            throw new IllegalArgumentException("Batch of " + markdowns.size()
+                    + " documents exceeds the limit of " + maxBatchDocuments);
+        }
+        return ResponseEntity.ok(signatureService.signMarkdownBatch(markdowns, metadata));
+    }
+
     /**
      * Verifies all signatures in a markdown document.
      *
@@ -64,6 +104,114 @@ public class SignatureController {
         }
     }
 
+    /**
+     * Verifies all signatures in a markdown document and renders its body to HTML.
+     * Raw HTML in the markdown is escaped.
+     *
+     * @param signedMarkdown The signed markdown document
+     * @return The verification results for each signature, with the HTML body
+     * only if all of them are valid, limited to the signed sections if no
+     * signature covers the whole document
+     */
+    @PostMapping(value = "/render",
+            consumes = MediaType.TEXT_MARKDOWN_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<RenderedDocument> verifyAndRender(@RequestBody String signedMarkdown) {
+        return ResponseEntity.ok(signatureService.verifyAndRender(signedMarkdown));
+    }
+
+    /**
+     * Lists the signatures of a markdown document from its front matter, without
+     * cryptographic verification.
+     *
+     * @param signedMarkdown The signed markdown document to inspect
+     * @return Signer, dates and metadata of each signature, and whether it was verified before
+     */
+    @PostMapping(value = "/inspect",
+            consumes = MediaType.TEXT_MARKDOWN_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SignatureInspection>> inspectSignatures(@RequestBody String signedMarkdown) {
+        return ResponseEntity.ok(signatureService.inspectSignatures(signedMarkdown));
+    }
+
+    /**
+     * Lists the sections of a markdown document that can be signed separately.
+     *
+     * @param markdown The markdown document
+     * @return Section ids, titles and current digests in document order
+     */
+    @PostMapping(value = "/sections",
+            consumes = MediaType.TEXT_MARKDOWN_VALUE,
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SectionSummary>> listSections(@RequestBody String markdown) {
+        return ResponseEntity.ok(signatureService.listSections(markdown));
+    }
+
+    /**
+     * Lists the known signatures over a content digest.
+     *
+     * @param digest Hex encoded SHA-256 digest of the signed content, or the section root for section signatures
+     * @return Signatures recorded for the digest, empty if it was never signed or verified
+     */
+    @GetMapping(value = "/index/documents/{digest}",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SignatureIndexEntry>> findSignaturesByDigest(@PathVariable String digest) {
+        return ResponseEntity.ok(signatureService.findSignaturesByDigest(digest));
+    }
+
+    /**
+     * Lists the documents signed by a signer, optionally within a time range.
+     *
+     * @param signerDN The distinguished name of the signer
+     * @param from     Optional inclusive lower bound of the signing time
+     * @param to       Optional inclusive upper bound of the signing time
+     * @param limit    Maximum number of entries to return
+     * @return Index entries ordered by signing time
+     */
+    @GetMapping(value = "/index/signers",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<List<SignatureIndexEntry>> findSignaturesBySigner(
+            @RequestParam String signerDN,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(defaultValue = "1000") int limit) {
+        return ResponseEntity.ok(signatureService.findSignaturesBySigner(signerDN, from, to, limit));
+    }
+
+    /**
+     * Reloads the truststore after it has been rotated and invalidates the
+     * cached validation and verification results on all replicas.
+     *
+     * @return The number of trust anchors loaded
+     */
+    @PostMapping(value = "/truststore/reload",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<Map<String, Integer>> reloadTrustStore() throws Exception {
+        return ResponseEntity.ok(Map.of("trustAnchors", certificateValidator.reloadTrustAnchors()));
+    }
+
+    /**
+     * Returns per-stage timings of sampled requests and the most recent traces.
+     */
+    @GetMapping(value = "/traces",
+            produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<TraceReport> traces(@RequestParam(defaultValue = "50") int limit) {
+        return ResponseEntity.ok(tracer.report(limit));
+    }
+
+    /**
+     * Removes the request parameters that control signing from the metadata map,
+     * which Spring fills with every request parameter.
+     */
+    private static Map<String, String> metadataParams(Map<String, String> params) {
+        if (params == null) {
+            return null;
+        }
+        Map<String, String> metadata = new HashMap<>(params);
+        metadata.keySet().removeAll(SIGN_PARAMETERS);
+        return metadata;
+    }
+
     /**
      * Handles exceptions thrown by the signature service.
      */
@@ -0,0 +1,438 @@
+package com.md.sign;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.*;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Embedded, file-backed index of known signatures.
+ * <p>
+ * Maps content digests to the signatures made over them, and signer DNs to the
+ * documents they signed ordered by signing time. Lookups are served from memory;
+ * the file is an append-only log that is replayed at startup.
+ * <p>
+ * The heap layout is kept compact for millions of entries. Each distinct digest
+ * is stored once in a flat byte array and found through an open-addressing
+ * table of digest ids. Entries are rows of parallel primitive arrays, chained
+ * per digest, and each signer's timeline is a sorted array of entry ids. Signer
+ * DNs are stored in a dictionary and referenced by id, both on the heap and on disk.
+ */
+@Component
+public class SignatureIndex {
+
+    private static final Logger logger = LoggerFactory.getLogger(SignatureIndex.class);
+
+    private static final int SIGNER_RECORD = 'S';
+    private static final int ENTRY_RECORD = 'E';
+    private static final int ENTRY_RECORD_LENGTH = 1 + Digests.SHA256_LENGTH + 4 + 8 + 8;
+    private static final long UNKNOWN_TIME = Long.MIN_VALUE;
+    private static final int NONE = -1;
+    private static final int INITIAL_CAPACITY = 64;
+
+    private final boolean enabled;
+    private final Path file;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Distinct digests, by digest id
+    private byte[] digests = new byte[INITIAL_CAPACITY * Digests.SHA256_LENGTH];
+    private int[] lastEntryOfDigest = new int[INITIAL_CAPACITY];
+    private int digestCount;
+    // Open-addressing table of digest id + 1, 0 marks a free slot
+    private int[] digestTable = new int[INITIAL_CAPACITY * 2];
+
+    // Entries, by entry id
+    private int[] entryDigest = new int[INITIAL_CAPACITY];
+    private int[] entrySigner = new int[INITIAL_CAPACITY];
+    private int[] previousEntryOfDigest = new int[INITIAL_CAPACITY];
+    private long[] entrySignedAt = new long[INITIAL_CAPACITY];
+    private long[] entryExpiresAt = new long[INITIAL_CAPACITY];
+    private int entryCount;
+
+    // Signers, by signer id, with their entry ids ordered by signing time and digest
+    private final Map<String, Integer> signerIds = new HashMap<>();
+    private String[] signerNames = new String[16];
+    private int[][] timelines = new int[16][];
+    private int[] timelineSizes = new int[16];
+    private int signerCount;
+
+    private DataOutputStream out;
+
+    public SignatureIndex(@Value("${signature.index.enabled:true}") boolean enabled,
+                          @Value("${signature.index.path:}") String path) {
+        this.enabled = enabled;
+        this.file = enabled && !path.isBlank() ? Path.of(path) : null;
+
+        if (file != null) {
+            try {
+                load();
+                Path parent = file.toAbsolutePath().getParent();
+                if (parent != null) {
+                    Files.createDirectories(parent);
+                }
+                out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(file,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND)));
+                logger.info("Loaded {} signature index entries from: {}", entryCount, file);
+            } catch (IOException e) {
+                throw new IllegalStateException("Failed to open signature index: " + file, e);
+            }
+        }
+    }
+
+    /**
+     * Records a signature over the given content digest. Recording the same
+     * signer and signing time for a digest twice has no effect.
+     */
+    public void record(byte[] contentDigest, String signerDN, Instant signedAt, Instant expirationDate) {
+        if (!enabled || signerDN == null) {
+            return;
+        }
+        checkDigest(contentDigest);
+        long signedAtMillis = signedAt != null ? signedAt.toEpochMilli() : UNKNOWN_TIME;
+        long expiresAtMillis = expirationDate != null ? expirationDate.toEpochMilli() : UNKNOWN_TIME;
+
+        lock.writeLock().lock();
+        try {
+            Integer signerId = signerIds.get(signerDN);
+            int digestId = findDigest(contentDigest);
+            if (signerId != null && digestId != NONE && contains(digestId, signerId, signedAtMillis)) {
+                return;
+            }
+            try {
+                if (signerId == null) {
+                    signerId = addSigner(signerCount, signerDN);
+                    writeSigner(signerId, signerDN);
+                }
+                if (digestId == NONE) {
+                    digestId = addDigest(contentDigest);
+                }
+                addEntry(digestId, signerId, signedAtMillis, expiresAtMillis);
+                writeEntry(contentDigest, signerId, signedAtMillis, expiresAtMillis);
+            } catch (IOException e) {
+                logger.error("Failed to append to signature index: {}", e.getMessage());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Returns all known signatures over the given content digest.
+     */
+    public List<SignatureIndexEntry> findByDigest(byte[] contentDigest) {
+        checkDigest(contentDigest);
+        lock.readLock().lock();
+        try {
+            int digestId = findDigest(contentDigest);
+            if (digestId == NONE) {
+                return Collections.emptyList();
+            }
+            List<SignatureIndexEntry> entries = new ArrayList<>();
+            for (int entry = lastEntryOfDigest[digestId]; entry != NONE; entry = previousEntryOfDigest[entry]) {
+                entries.add(toEntry(entry));
+            }
+            Collections.reverse(entries);
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Returns the documents signed by the given DN within the time range, oldest first.
+     *
+     * @param from  inclusive lower bound, or null for no bound
+     * @param to    inclusive upper bound, or null for no bound
+     * @param limit maximum number of entries to return
+     */
+    public List<SignatureIndexEntry> findBySigner(String signerDN, Instant from, Instant to, int limit) {
+        long low = from != null ? from.toEpochMilli() : UNKNOWN_TIME + 1;
+        long high = to != null ? to.toEpochMilli() : Long.MAX_VALUE;
+
+        lock.readLock().lock();
+        try {
+            Integer signerId = signerIds.get(signerDN);
+            if (signerId == null) {
+                return Collections.emptyList();
+            }
+            int[] timeline = timelines[signerId];
+            int size = timelineSizes[signerId];
+            List<SignatureIndexEntry> entries = new ArrayList<>();
+            for (int i = firstSignedAtOrAfter(timeline, size, low);
+                 i < size && entries.size() < limit && entrySignedAt[timeline[i]] <= high; i++) {
+                entries.add(toEntry(timeline[i]));
+            }
+            return entries;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public long size() {
+        lock.readLock().lock();
+        try {
+            return entryCount;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        lock.writeLock().lock();
+        try {
+            if (out != null) {
+                try {
+                    out.close();
+                } catch (IOException e) {
+                    logger.warn("Failed to close signature index: {}", e.getMessage());
+                }
+                out = null;
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private static void checkDigest(byte[] contentDigest) {
+        if (contentDigest.length != Digests.SHA256_LENGTH) {
+            throw new IllegalArgumentException("Content digest must be " + Digests.SHA256_LENGTH + " bytes");
+        }
+    }
+
+    private boolean contains(int digestId, int signerId, long signedAtMillis) {
+        for (int entry = lastEntryOfDigest[digestId]; entry != NONE; entry = previousEntryOfDigest[entry]) {
+            if (entrySigner[entry] == signerId && entrySignedAt[entry] == signedAtMillis) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Returns the id of a digest, or {@link #NONE} if it is not indexed.
+     */
+    private int findDigest(byte[] digest) {
+        int mask = digestTable.length - 1;
+        for (int slot = digestHash(digest, 0) & mask; ; slot = (slot + 1) & mask) {
+            int id = digestTable[slot] - 1;
+            if (id == NONE) {
+                return NONE;
+            }
+            if (Arrays.equals(digests, id * Digests.SHA256_LENGTH, (id + 1) * Digests.SHA256_LENGTH,
+                    digest, 0, Digests.SHA256_LENGTH)) {
+                return id;
+            }
+        }
+    }
+
+    private int addDigest(byte[] digest) {
+        int id = digestCount++;
+        if (id == lastEntryOfDigest.length) {
+            int capacity = id * 2;
+            digests = Arrays.copyOf(digests, capacity * Digests.SHA256_LENGTH);
+            lastEntryOfDigest = Arrays.copyOf(lastEntryOfDigest, capacity);
+        }
+        System.arraycopy(digest, 0, digests, id * Digests.SHA256_LENGTH, Digests.SHA256_LENGTH);
+        lastEntryOfDigest[id] = NONE;
+
+        if (digestCount * 2 > digestTable.length) {
+            digestTable = new int[digestTable.length * 2];
+            for (int existing = 0; existing < id; existing++) {
+                insertDigestId(existing);
+            }
+        }
+        insertDigestId(id);
+        return id;
+    }
+
+    private void insertDigestId(int id) {
+        int mask = digestTable.length - 1;
+        int slot = digestHash(digests, id * Digests.SHA256_LENGTH) & mask;
+        while (digestTable[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        digestTable[slot] = id + 1;
+    }
+
+    /**
+     * SHA-256 output is uniformly distributed, so its leading bytes serve as the hash.
+     */
+    private static int digestHash(byte[] bytes, int offset) {
+        return (bytes[offset] & 0xFF) << 24 | (bytes[offset + 1] & 0xFF) << 16
+                | (bytes[offset + 2] & 0xFF) << 8 | (bytes[offset + 3] & 0xFF);
+    }
+
+    private int addSigner(int id, String signerDN) {
+        if (id >= signerNames.length) {
+            int capacity = Math.max(signerNames.length * 2, id + 1);
+            signerNames = Arrays.copyOf(signerNames, capacity);
+            timelines = Arrays.copyOf(timelines, capacity);
+            timelineSizes = Arrays.copyOf(timelineSizes, capacity);
+        }
+        signerNames[id] = signerDN;
+        timelines[id] = new int[4];
+        signerCount = Math.max(signerCount, id + 1);
+        signerIds.put(signerDN, id);
+        return id;
+    }
+
+    private void addEntry(int digestId, int signerId, long signedAt, long expiresAt) {
+        int entry = entryCount;
+        if (entry == entryDigest.length) {
+            int capacity = entry * 2;
+            entryDigest = Arrays.copyOf(entryDigest, capacity);
+            entrySigner = Arrays.copyOf(entrySigner, capacity);
+            previousEntryOfDigest = Arrays.copyOf(previousEntryOfDigest, capacity);
+            entrySignedAt = Arrays.copyOf(entrySignedAt, capacity);
+            entryExpiresAt = Arrays.copyOf(entryExpiresAt, capacity);
+        }
+        entryDigest[entry] = digestId;
+        entrySigner[entry] = signerId;
+        entrySignedAt[entry] = signedAt;
+        entryExpiresAt[entry] = expiresAt;
+        previousEntryOfDigest[entry] = lastEntryOfDigest[digestId];
+        lastEntryOfDigest[digestId] = entry;
+        entryCount++;
+        addToTimeline(signerId, entry);
+    }
+
+    /**
+     * Inserts an entry into the signer's timeline. Entries mostly arrive in
+     * signing time order, so the insertion point is usually the end.
+     */
+    private void addToTimeline(int signerId, int entry) {
+        int[] timeline = timelines[signerId];
+        int size = timelineSizes[signerId];
+        if (size == timeline.length) {
+            timeline = Arrays.copyOf(timeline, size * 2);
+            timelines[signerId] = timeline;
+        }
+        int position = size;
+        while (position > 0 && compareEntries(timeline[position - 1], entry) > 0) {
+            position--;
+        }
+        System.arraycopy(timeline, position, timeline, position + 1, size - position);
+        timeline[position] = entry;
+        timelineSizes[signerId] = size + 1;
+    }
+
+    private int compareEntries(int a, int b) {
+        int result = Long.compare(entrySignedAt[a], entrySignedAt[b]);
+        if (result != 0) {
+            return result;
+        }
+        int offsetA = entryDigest[a] * Digests.SHA256_LENGTH;
+        int offsetB = entryDigest[b] * Digests.SHA256_LENGTH;
+        return Arrays.compareUnsigned(digests, offsetA, offsetA + Digests.SHA256_LENGTH,
+                digests, offsetB, offsetB + Digests.SHA256_LENGTH);
+    }
+
+    private int firstSignedAtOrAfter(int[] timeline, int size, long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (entrySignedAt[timeline[mid]] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private SignatureIndexEntry toEntry(int entry) {
+        int offset = entryDigest[entry] * Digests.SHA256_LENGTH;
+        return new SignatureIndexEntry(
+                Digests.toHex(Arrays.copyOfRange(digests, offset, offset + Digests.SHA256_LENGTH)),
+                signerNames[entrySigner[entry]],
+                toInstant(entrySignedAt[entry]),
+                toInstant(entryExpiresAt[entry])
+        );
+    }
+
+    private static Instant toInstant(long millis) {
+        return millis == UNKNOWN_TIME ? null : Instant.ofEpochMilli(millis);
+    }
+
+    private void writeSigner(int id, String signerDN) throws IOException {
+        if (out == null) {
+            return;
+        }
+        byte[] name = signerDN.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(SIGNER_RECORD);
+        out.writeInt(id);
+        out.writeShort(name.length);
+        out.write(name);
+    }
+
+    private void writeEntry(byte[] digest, int signerId, long signedAt, long expiresAt) throws IOException {
+        if (out == null) {
+            return;
+        }
+        out.writeByte(ENTRY_RECORD);
+        out.write(digest);
+        out.writeInt(signerId);
+        out.writeLong(signedAt);
+        out.writeLong(expiresAt);
+        out.flush();
+    }
+
+    /**
+     * Replays the index log. A truncated or unreadable tail, e.g. from a crash
+     * during append, is cut off so that new records start on a clean boundary.
+     */
+    private void load() throws IOException {
+        if (!Files.exists(file)) {
+            return;
+        }
+        long validLength = 0;
+        byte[] digest = new byte[Digests.SHA256_LENGTH];
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file)))) {
+            int type;
+            while ((type = in.read()) >= 0) {
+                if (type == SIGNER_RECORD) {
+                    int id = in.readInt();
+                    byte[] name = new byte[in.readUnsignedShort()];
+                    in.readFully(name);
+                    addSigner(id, new String(name, StandardCharsets.UTF_8));
+                    validLength += 1 + 4 + 2 + name.length;
+                } else if (type == ENTRY_RECORD) {
+                    in.readFully(digest);
+                    int signerId = in.readInt();
+                    long signedAt = in.readLong();
+                    long expiresAt = in.readLong();
+                    if (signerId < 0 || signerId >= signerNames.length || signerNames[signerId] == null) {
+                        throw new IOException("Entry references unknown signer id " + signerId);
+                    }
+                    int digestId = findDigest(digest);
+                    if (digestId == NONE) {
+                        digestId = addDigest(digest);
+                    }
+                    addEntry(digestId, signerId, signedAt, expiresAt);
+                    validLength += ENTRY_RECORD_LENGTH;
+                } else {
+                    throw new IOException("Unknown record type " + type);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Signature index is damaged after {} bytes, truncating: {}", validLength, e.getMessage());
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.truncate(validLength);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package com.md.sign;
+
+import java.time.Instant;
+
+/**
+ * A single entry of the signature index: who signed which content, and when.
+ */
+public record SignatureIndexEntry(
+        String contentDigest,
+        String signerDN,
+        Instant signedAt,
+        Instant expirationDate
+) {
+}
@@ -0,0 +1,23 @@
+package com.md.sign;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * What the front matter says about one signature, without verifying it.
+ * {@code verifiedAt} is set when the same signature over the same content
+ * already passed full verification.
+ */
+public record SignatureInspection(
+        String signerDN,
+        Instant signedAt,
+        Instant expirationDate,
+        Map<String, String> metadata,
+        List<String> sections,
+        boolean cosigned,
+        boolean expired,
+        boolean previouslyVerified,
+        Instant verifiedAt
+) {
+}
@@ -1,16 +1,43 @@
 package com.md.sign;
 
+import java.time.Instant;
+import java.util.List;
+
 /**
  * Represents the result of a signature verification operation.
+ * <p>
+ * The timestamp does not decide validity: a cryptographically valid signature
+ * with a missing or untrusted timestamp is valid, and {@code timestampStatus}
+ * says which. The timestamp time is only set for a verified timestamp.
+ * {@code sections} lists the ids of the sections a valid section signature
+ * covers, and is null for signatures over the whole document.
+ * {@code validUntil} is when a valid result stops holding: the earlier of the
+ * signer certificate's expiry and the signature's expiration date.
  */
 public record SignatureVerificationResult(
         boolean valid,
         String signerDN,
-        String message
+        String message,
+        Instant timestampedAt,
+        TimestampStatus timestampStatus,
+        List<String> sections,
+        Instant validUntil
 ) {
+
+    /**
+     * Outcome of checking a valid signature's RFC 3161 timestamp.
+     */
+    public enum TimestampStatus {
+        VERIFIED, MISSING, UNTRUSTED
+    }
+
     public SignatureVerificationResult {
         if (message == null) {
             message = valid ? "Signature is valid" : "Signature verification failed";
         }
     }
-}
\ No newline at end of file
+
+    public SignatureVerificationResult(boolean valid, String signerDN, String message) {
+        this(valid, signerDN, message, null, null, null, null);
+    }
+}
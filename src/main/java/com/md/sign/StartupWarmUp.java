@@ -0,0 +1,119 @@
+package com.md.sign;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.List;
+
+/**
+ * Signs and verifies a throwaway document at startup, so that YAML parsing,
+ * canonicalization, CMS signing, timestamping and certificate validation are
+ * loaded and compiled before the first request instead of during it.
+ * <p>
+ * The warm-up runs once all singletons exist but before the web server
+ * starts, so an instance only accepts requests once it is warm. When the
+ * application is ready, one request is sent to the side-effect free sections
+ * endpoint over loopback to warm the web layer, and its latency is logged
+ * with the JVM uptime as the time to the first fast request. The bean is
+ * never lazy, as it forces the signing service to be created even when lazy
+ * initialization is enabled.
+ */
+@Component
+@Lazy(false)
+public class StartupWarmUp implements SmartInitializingSingleton {
+
+    private static final Logger logger = LoggerFactory.getLogger(StartupWarmUp.class);
+
+    private static final String WARM_UP_DOCUMENT = """
+            ---
+            title: Warm-up
+            ---
+
+            # Warm-up
+
+            Throwaway document signed at startup.
+
+            ## Details
+
+            Café, naïve, Ångström
+            """;
+
+    private final DigitalSignatureService signatureService;
+    private final boolean enabled;
+    private final int rounds;
+    private long warmUpMillis;
+
+    public StartupWarmUp(DigitalSignatureService signatureService,
+                         @Value("${signature.warmup.enabled:false}") boolean enabled,
+                         @Value("${signature.warmup.rounds:3}") int rounds) {
+        this.signatureService = signatureService;
+        this.enabled = enabled;
+        this.rounds = rounds;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        long start = System.nanoTime();
+        for (int round = 1; round <= rounds; round++) {
+            try {
+                long signStart = System.nanoTime();
+                String signed = signatureService.warmUpSign(WARM_UP_DOCUMENT);
+                long verifyStart = System.nanoTime();
+                List<SignatureVerificationResult> results = signatureService.warmUpVerify(signed);
+                long end = System.nanoTime();
+
+                logger.info("Warm-up round {}: sign {} ms, verify {} ms", round,
+                        (verifyStart - signStart) / 1_000_000, (end - verifyStart) / 1_000_000);
+                if (!results.get(0).valid()) {
+                    logger.warn("Warm-up signature did not verify: {}", results.get(0).message());
+                }
+            } catch (Exception e) {
+                logger.warn("Warm-up round {} failed: {}", round, e.getMessage());
+                break;
+            }
+        }
+        warmUpMillis = (System.nanoTime() - start) / 1_000_000;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void reportReady(ApplicationReadyEvent event) {
+        if (!enabled) {
+            logger.info("Ready {} ms after JVM start, without warm-up",
+                    ManagementFactory.getRuntimeMXBean().getUptime());
+            return;
+        }
+        if (event.getApplicationContext() instanceof WebServerApplicationContext webContext) {
+            long start = System.nanoTime();
+            try {
+                HttpRequest request = HttpRequest.newBuilder(URI.create(
+                                "http://localhost:" + webContext.getWebServer().getPort() + "/api/markdown/sections"))
+                        .header("Content-Type", "text/markdown")
+                        .POST(HttpRequest.BodyPublishers.ofString(WARM_UP_DOCUMENT))
+                        .build();
+                int status = HttpClient.newHttpClient()
+                        .send(request, HttpResponse.BodyHandlers.discarding())
+                        .statusCode();
+                logger.info("Warm-up request returned {} in {} ms", status, (System.nanoTime() - start) / 1_000_000);
+            } catch (Exception e) {
+                logger.warn("Warm-up request failed: {}", e.getMessage());
+            }
+        }
+        logger.info("Ready for warm requests {} ms after JVM start, {} ms of it spent on warm-up",
+                ManagementFactory.getRuntimeMXBean().getUptime(), warmUpMillis);
+    }
+}
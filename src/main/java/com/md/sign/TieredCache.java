@@ -0,0 +1,203 @@
+package com.md.sign;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Two-tier cache for verification results shared across replicas: a bounded
+ * in-process near cache in front of a {@link CacheBackend}.
+ * <p>
+ * Entries are stored under the current generation. {@link #invalidateAll()}
+ * advances the generation in the backend, which makes every entry of earlier
+ * generations unreachable. Other replicas notice the new generation when they
+ * poll the backend, run their invalidation listeners, for instance to reload
+ * their trust anchors, and only then switch to it, so nothing computed under
+ * the old trust configuration is stored under the new generation.
+ */
+@Component
+public class TieredCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(TieredCache.class);
+
+    private final CacheBackend backend;
+    private final long maxTtlMillis;
+    private final List<Runnable> invalidationListeners = new CopyOnWriteArrayList<>();
+    private final List<Region<?>> regions = new CopyOnWriteArrayList<>();
+    private final ScheduledExecutorService poller;
+    private volatile long generation;
+
+    public TieredCache(CacheBackend backend,
+                       @Value("${signature.cache.ttl.seconds:3600}") long ttlSeconds,
+                       @Value("${signature.cache.generation.poll.ms:1000}") long pollMillis) {
+        this.backend = backend;
+        this.maxTtlMillis = TimeUnit.SECONDS.toMillis(ttlSeconds);
+        this.generation = backend.generation();
+        this.poller = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "cache-generation-poll");
+            thread.setDaemon(true);
+            return thread;
+        });
+        poller.scheduleWithFixedDelay(this::pollGeneration, pollMillis, pollMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Creates a named region of the cache with its own near cache.
+     *
+     * @param nearSize maximum number of entries kept in process
+     * @param encoder  converts values for the backend
+     * @param decoder  converts values read from the backend
+     */
+    public <V> Region<V> region(String name, int nearSize, Function<V, byte[]> encoder,
+                                Function<byte[], V> decoder) {
+        Region<V> region = new Region<>(name, nearSize, encoder, decoder);
+        regions.add(region);
+        return region;
+    }
+
+    /**
+     * Returns the current generation. Read it before computing a value and pass
+     * it to {@link Region#put}, so that a value computed across an invalidation
+     * is not stored under the new generation.
+     */
+    public long generation() {
+        return generation;
+    }
+
+    /**
+     * Registers a listener run when another replica invalidates the cache,
+     * before this replica starts using the new generation.
+     */
+    public void addInvalidationListener(Runnable listener) {
+        invalidationListeners.add(listener);
+    }
+
+    /**
+     * Invalidates all entries on every replica sharing the backend.
+     */
+    public synchronized void invalidateAll() {
+        generation = Math.max(generation + 1, backend.advanceGeneration());
+        regions.forEach(Region::clear);
+        logger.info("Invalidated verification caches, generation is now {}", generation);
+    }
+
+    @PreDestroy
+    public void close() {
+        poller.shutdownNow();
+    }
+
+    private synchronized void pollGeneration() {
+        try {
+            long current = backend.generation();
+            if (current > generation) {
+                logger.info("Cache generation advanced to {} by another replica", current);
+                for (Runnable listener : invalidationListeners) {
+                    listener.run();
+                }
+                generation = current;
+                regions.forEach(Region::clear);
+            }
+        } catch (RuntimeException e) {
+            logger.warn("Failed to poll cache generation: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * A named group of entries with the same value type.
+     */
+    public final class Region<V> {
+
+        private record NearEntry<V>(V value, long generation, long expiresAtMillis) {
+        }
+
+        private final String name;
+        private final Function<V, byte[]> encoder;
+        private final Function<byte[], V> decoder;
+        private final Map<String, NearEntry<V>> near;
+
+        private Region(String name, int nearSize, Function<V, byte[]> encoder, Function<byte[], V> decoder) {
+            this.name = name;
+            this.encoder = encoder;
+            this.decoder = decoder;
+            this.near = Collections.synchronizedMap(new LinkedHashMap<>(64, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<String, NearEntry<V>> eldest) {
+                    return size() > nearSize;
+                }
+            });
+        }
+
+        /**
+         * Returns the value from the near cache, or from the backend, or null if
+         * neither has an unexpired entry of the current generation.
+         */
+        public V get(String key) {
+            long currentGeneration = generation;
+            long now = System.currentTimeMillis();
+            NearEntry<V> entry = near.get(key);
+            if (entry != null && entry.generation() == currentGeneration && entry.expiresAtMillis() > now) {
+                return entry.value();
+            }
+
+            byte[] stored = backend.get(backendKey(key, currentGeneration));
+            if (stored == null || stored.length < Long.BYTES) {
+                return null;
+            }
+            ByteBuffer buffer = ByteBuffer.wrap(stored);
+            long expiresAt = buffer.getLong();
+            if (expiresAt <= now) {
+                return null;
+            }
+            V value;
+            try {
+                value = decoder.apply(Arrays.copyOfRange(stored, Long.BYTES, stored.length));
+            } catch (RuntimeException e) {
+                logger.warn("Ignoring unreadable {} cache entry: {}", name, e.getMessage());
+                return null;
+            }
+            near.put(key, new NearEntry<>(value, currentGeneration, expiresAt));
+            return value;
+        }
+
+        /**
+         * Stores a value in both tiers, unless the cache has been invalidated
+         * since {@code computedInGeneration}.
+         */
+        public void put(String key, V value, long expiresAtMillis, long computedInGeneration) {
+            if (computedInGeneration != generation) {
+                return;
+            }
+            long expiresAt = Math.min(expiresAtMillis, System.currentTimeMillis() + maxTtlMillis);
+            if (expiresAt <= System.currentTimeMillis()) {
+                return;
+            }
+            near.put(key, new NearEntry<>(value, computedInGeneration, expiresAt));
+            byte[] encoded = encoder.apply(value);
+            backend.put(backendKey(key, computedInGeneration),
+                    ByteBuffer.allocate(Long.BYTES + encoded.length).putLong(expiresAt).put(encoded).array(),
+                    expiresAt);
+        }
+
+        private void clear() {
+            near.clear();
+        }
+
+        private String backendKey(String key, long keyGeneration) {
+            return name + '/' + keyGeneration + '/' + key;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.md.sign;
+
+import org.bouncycastle.tsp.TimeStampToken;
+
+import java.security.cert.X509Certificate;
+
+/**
+ * Source of RFC 3161 timestamp tokens.
+ */
+public interface TimeStampAuthority {
+
+    /**
+     * Requests a timestamp token over a SHA-256 message imprint.
+     */
+    TimeStampToken timestamp(byte[] messageImprint) throws Exception;
+
+    /**
+     * Returns the certificate this authority signs tokens with, if it is known
+     * up front and can be trusted without further chain validation.
+     */
+    default X509Certificate trustedCertificate() {
+        return null;
+    }
+}
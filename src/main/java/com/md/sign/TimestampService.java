@@ -0,0 +1,196 @@
+package com.md.sign;
+
+import jakarta.annotation.PreDestroy;
+import org.bouncycastle.asn1.ASN1EncodableVector;
+import org.bouncycastle.asn1.ASN1ObjectIdentifier;
+import org.bouncycastle.asn1.DERSet;
+import org.bouncycastle.asn1.cms.Attribute;
+import org.bouncycastle.asn1.cms.AttributeTable;
+import org.bouncycastle.asn1.cms.ContentInfo;
+import org.bouncycastle.asn1.pkcs.PKCSObjectIdentifiers;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cms.CMSSignedData;
+import org.bouncycastle.cms.SignerInformation;
+import org.bouncycastle.cms.SignerInformationStore;
+import org.bouncycastle.cms.jcajce.JcaSimpleSignerInfoVerifierBuilder;
+import org.bouncycastle.tsp.TSPAlgorithms;
+import org.bouncycastle.tsp.TSPException;
+import org.bouncycastle.tsp.TimeStampToken;
+import org.bouncycastle.tsp.TimeStampTokenInfo;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.security.MessageDigest;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Adds and verifies RFC 3161 signature timestamps on CMS signers.
+ * <p>
+ * The token is stored as the standard {@code signatureTimeStampToken} unsigned
+ * attribute. To avoid one TSA round trip per signature, signature values are
+ * collected over a short window and a single token is requested over the
+ * Merkle root of the batch. Each signer then also carries its inclusion proof
+ * in the {@link #MERKLE_PROOF_ATTRIBUTE} unsigned attribute. A batch of one
+ * needs no proof and yields a plain RFC 3161 signature timestamp.
+ */
+@Service
+public class TimestampService {
+
+    private static final Logger logger = LoggerFactory.getLogger(TimestampService.class);
+
+    /**
+     * Unsigned attribute holding the {@link MerkleProof} of a batched timestamp.
+     */
+    public static final ASN1ObjectIdentifier MERKLE_PROOF_ATTRIBUTE =
+            new ASN1ObjectIdentifier("2.25.98125885905988773662001117947793079672");
+
+    private static final ASN1ObjectIdentifier TIMESTAMP_TOKEN_ATTRIBUTE =
+            PKCSObjectIdentifiers.id_aa_signatureTimeStampToken;
+
+    private record TimestampGrant(TimeStampToken token, MerkleProof proof) {
+    }
+
+    private final TimeStampAuthority timeStampAuthority;
+    private final CertificateValidator certificateValidator;
+    private final boolean enabled;
+    private final long timeoutMillis;
+    private final BatchCollector<byte[], TimestampGrant> collector;
+
+    public TimestampService(TimeStampAuthority timeStampAuthority,
+                            CertificateValidator certificateValidator,
+                            @Value("${signature.timestamp.enabled:true}") boolean enabled,
+                            @Value("${signature.timestamp.batch.size:256}") int batchSize,
+                            @Value("${signature.timestamp.batch.window.ms:10}") long batchWindowMillis,
+                            @Value("${signature.tsa.timeout.ms:5000}") long tsaTimeoutMillis) {
+        this.timeStampAuthority = timeStampAuthority;
+        this.certificateValidator = certificateValidator;
+        this.enabled = enabled;
+        // A signature may wait for its batch window to close before the TSA request starts
+        this.timeoutMillis = batchWindowMillis + tsaTimeoutMillis;
+        this.collector = new BatchCollector<>("timestamp", batchSize, batchWindowMillis, this::timestampBatch);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Adds a signature timestamp to every signer that does not have one yet.
+     */
+    public CMSSignedData addTimestamps(CMSSignedData signedData) throws Exception {
+        if (!enabled) {
+            return signedData;
+        }
+        List<SignerInformation> signers = new ArrayList<>();
+        for (SignerInformation signer : signedData.getSignerInfos().getSigners()) {
+            signers.add(readToken(signer) != null ? signer : addTimestamp(signer));
+        }
+        return CMSSignedData.replaceSigners(signedData, new SignerInformationStore(signers));
+    }
+
+    /**
+     * Returns the generation time of the signer's timestamp without validating it.
+     *
+     * @return the timestamp time, or null if the signer has no timestamp
+     */
+    public Instant timestampTime(SignerInformation signer) throws Exception {
+        TimeStampToken token = readToken(signer);
+        return token != null ? token.getTimeStampInfo().getGenTime().toInstant() : null;
+    }
+
+    /**
+     * Validates the signer's timestamp token and checks that it covers the signature value.
+     *
+     * @return the timestamp time, or null if the signer has no timestamp
+     * @throws TSPException if the token is invalid, untrusted or covers something else
+     */
+    public Instant verifyTimestamp(SignerInformation signer) throws Exception {
+        TimeStampToken token = readToken(signer);
+        if (token == null) {
+            return null;
+        }
+
+        @SuppressWarnings("unchecked")
+        Collection<X509CertificateHolder> tsaCerts = token.getCertificates().getMatches(token.getSID());
+        if (tsaCerts.isEmpty()) {
+            throw new TSPException("Timestamp token does not include the TSA certificate");
+        }
+        X509Certificate tsaCert = new JcaX509CertificateConverter().getCertificate(tsaCerts.iterator().next());
+        token.validate(new JcaSimpleSignerInfoVerifierBuilder().build(tsaCert));
+
+        if (!tsaCert.equals(timeStampAuthority.trustedCertificate())) {
+            certificateValidator.validateCertificateChain(tsaCert,
+                    CertificateValidator.toX509Certificates(token.getCertificates()));
+        }
+
+        TimeStampTokenInfo info = token.getTimeStampInfo();
+        if (!TSPAlgorithms.SHA256.equals(info.getMessageImprintAlgOID())) {
+            throw new TSPException("Unsupported timestamp imprint algorithm: " + info.getMessageImprintAlgOID());
+        }
+
+        byte[] expectedImprint = Digests.sha256(signer.getSignature());
+        Attribute proofAttribute = signer.getUnsignedAttributes().get(MERKLE_PROOF_ATTRIBUTE);
+        if (proofAttribute != null) {
+            MerkleProof proof = MerkleProof.fromASN1(proofAttribute.getAttrValues().getObjectAt(0));
+            expectedImprint = MerkleTree.rootFromProof(expectedImprint, proof);
+        }
+        if (!MessageDigest.isEqual(expectedImprint, info.getMessageImprintDigest())) {
+            throw new TSPException("Timestamp does not cover this signature");
+        }
+
+        return info.getGenTime().toInstant();
+    }
+
+    @PreDestroy
+    public void close() {
+        collector.close();
+    }
+
+    private SignerInformation addTimestamp(SignerInformation signer) throws Exception {
+        TimestampGrant grant = collector.submit(Digests.sha256(signer.getSignature()))
+                .get(timeoutMillis, TimeUnit.MILLISECONDS);
+
+        AttributeTable unsigned = signer.getUnsignedAttributes();
+        ASN1EncodableVector attributes = unsigned != null
+                ? unsigned.toASN1EncodableVector()
+                : new ASN1EncodableVector();
+        attributes.add(new Attribute(TIMESTAMP_TOKEN_ATTRIBUTE,
+                new DERSet(grant.token().toCMSSignedData().toASN1Structure())));
+        if (grant.proof() != null) {
+            attributes.add(new Attribute(MERKLE_PROOF_ATTRIBUTE, new DERSet(grant.proof().toASN1Primitive())));
+        }
+        return SignerInformation.replaceUnsignedAttributes(signer, new AttributeTable(attributes));
+    }
+
+    private List<TimestampGrant> timestampBatch(List<byte[]> imprints) throws Exception {
+        if (imprints.size() == 1) {
+            return List.of(new TimestampGrant(timeStampAuthority.timestamp(imprints.get(0)), null));
+        }
+        MerkleTree tree = MerkleTree.build(imprints);
+        TimeStampToken token = timeStampAuthority.timestamp(tree.root());
+
+        List<TimestampGrant> grants = new ArrayList<>(imprints.size());
+        for (int i = 0; i < imprints.size(); i++) {
+            grants.add(new TimestampGrant(token, tree.proof(i)));
+        }
+        logger.debug("Timestamped batch of {} signatures", imprints.size());
+        return grants;
+    }
+
+    private static TimeStampToken readToken(SignerInformation signer) throws Exception {
+        AttributeTable unsigned = signer.getUnsignedAttributes();
+        Attribute attribute = unsigned != null ? unsigned.get(TIMESTAMP_TOKEN_ATTRIBUTE) : null;
+        if (attribute == null) {
+            return null;
+        }
+        return new TimeStampToken(ContentInfo.getInstance(attribute.getAttrValues().getObjectAt(0)));
+    }
+}
@@ -0,0 +1,12 @@
+package com.md.sign;
+
+import java.time.Instant;
+import java.util.Map;
+
+/**
+ * Stage timings of one sampled request, in microseconds. Stages run several
+ * times per request, such as chain validation for each signature, are summed.
+ */
+public record TraceRecord(String operation, Instant startedAt, long totalMicros,
+                          Map<RequestTracer.Stage, Long> stageMicros) {
+}
@@ -0,0 +1,17 @@
+package com.md.sign;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Aggregated stage timings over all exported traces, with the most recent traces.
+ */
+public record TraceReport(double sampleRate, long exportedTraces, long droppedTraces,
+                          Map<RequestTracer.Stage, StageStatistics> stages, List<TraceRecord> recentTraces) {
+
+    /**
+     * Timings of one stage over all exported traces that ran it, in microseconds.
+     */
+    public record StageStatistics(long count, long totalMicros, long maxMicros) {
+    }
+}
@@ -0,0 +1,72 @@
+package com.md.sign;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+/**
+ * Fixed-size ring buffer with lock-free publishing from any number of threads
+ * and a single draining consumer.
+ * <p>
+ * Publishers claim a sequence number and write their slot without waiting for
+ * the consumer. When the consumer falls more than a full buffer behind, the
+ * oldest entries are overwritten and counted as dropped.
+ *
+ * @param <T> the entry type
+ */
+public class TraceRingBuffer<T> {
+
+    private record Slot<T>(long sequence, T value) {
+    }
+
+    private final AtomicReferenceArray<Slot<T>> slots;
+    private final int mask;
+    private final AtomicLong writeSequence = new AtomicLong();
+    private long readSequence;
+    private long dropped;
+
+    /**
+     * @param capacity number of slots, rounded up to a power of two
+     */
+    public TraceRingBuffer(int capacity) {
+        int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.slots = new AtomicReferenceArray<>(size);
+        this.mask = size - 1;
+    }
+
+    public void publish(T value) {
+        long sequence = writeSequence.getAndIncrement();
+        slots.set((int) (sequence & mask), new Slot<>(sequence, value));
+    }
+
+    /**
+     * Passes all entries published since the last drain to the consumer, oldest
+     * first. Stops early at a slot that has been claimed but not written yet.
+     */
+    public synchronized void drain(Consumer<T> consumer) {
+        long end = writeSequence.get();
+        if (end - readSequence > slots.length()) {
+            dropped += end - slots.length() - readSequence;
+            readSequence = end - slots.length();
+        }
+        while (readSequence < end) {
+            Slot<T> slot = slots.get((int) (readSequence & mask));
+            if (slot == null || slot.sequence() < readSequence) {
+                return;
+            }
+            if (slot.sequence() == readSequence) {
+                consumer.accept(slot.value());
+            } else {
+                dropped++;
+            }
+            readSequence++;
+        }
+    }
+
+    /**
+     * Returns the number of entries overwritten before they were drained.
+     */
+    public synchronized long dropped() {
+        return dropped;
+    }
+}
@@ -0,0 +1,34 @@
+package com.md.sign;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Begins and finishes a {@link RequestTracer} request around each HTTP request.
+ */
+@Component
+public class TracingFilter extends OncePerRequestFilter {
+
+    private final RequestTracer tracer;
+
+    public TracingFilter(RequestTracer tracer) {
+        this.tracer = tracer;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                    FilterChain filterChain) throws ServletException, IOException {
+        tracer.begin(request.getRequestURI());
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            tracer.finish();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.md.sign;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.Instant;
+
+/**
+ * Remembers signatures that passed full verification, keyed by the digest of
+ * the content they cover and a reference to the signature itself, so that an
+ * unchanged document can be recognised without repeating the cryptographic
+ * checks. Entries live in the {@link TieredCache} and are shared with other
+ * replicas.
+ */
+@Component
+public class VerificationCache {
+
+    private static final long NO_TIMESTAMP = Long.MIN_VALUE;
+
+    /**
+     * A successful verification of one signature.
+     */
+    public record Entry(String signerDN, Instant verifiedAt, Instant timestampedAt,
+                        SignatureVerificationResult.TimestampStatus timestampStatus, String message,
+                        Instant validUntil) {
+    }
+
+    private final TieredCache cache;
+    private final TieredCache.Region<Entry> entries;
+
+    public VerificationCache(TieredCache cache,
+                             @Value("${signature.verification.cache.size:4096}") int cacheSize) {
+        this.cache = cache;
+        this.entries = cache.region("verification", cacheSize, VerificationCache::encode, VerificationCache::decode);
+    }
+
+    /**
+     * Returns the cache generation to pass to {@link #record}, read before verifying.
+     */
+    public long generation() {
+        return cache.generation();
+    }
+
+    public void record(byte[] contentDigest, String signatureReference, Entry entry, Instant expiresAt,
+                       long generation) {
+        entries.put(key(contentDigest, signatureReference), entry, expiresAt.toEpochMilli(), generation);
+    }
+
+    /**
+     * Returns the recorded verification, or null if the signature has not been
+     * verified over this content since the trust anchors last changed.
+     */
+    public Entry lookup(byte[] contentDigest, String signatureReference) {
+        return entries.get(key(contentDigest, signatureReference));
+    }
+
+    private static String key(byte[] contentDigest, String signatureReference) {
+        return Digests.toHex(contentDigest) + ':' + signatureReference;
+    }
+
+    private static byte[] encode(Entry entry) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeUTF(entry.signerDN());
+            out.writeLong(entry.verifiedAt().toEpochMilli());
+            out.writeLong(entry.timestampedAt() != null ? entry.timestampedAt().toEpochMilli() : NO_TIMESTAMP);
+            out.writeUTF(entry.timestampStatus().name());
+            out.writeUTF(entry.message());
+            out.writeLong(entry.validUntil().toEpochMilli());
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static Entry decode(byte[] data) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(data))) {
+            String signerDN = in.readUTF();
+            Instant verifiedAt = Instant.ofEpochMilli(in.readLong());
+            long timestampedAt = in.readLong();
+            SignatureVerificationResult.TimestampStatus timestampStatus =
+                    SignatureVerificationResult.TimestampStatus.valueOf(in.readUTF());
+            String message = in.readUTF();
+            Instant validUntil = Instant.ofEpochMilli(in.readLong());
+            return new Entry(signerDN, verifiedAt,
+                    timestampedAt != NO_TIMESTAMP ? Instant.ofEpochMilli(timestampedAt) : null,
+                    timestampStatus, message, validUntil);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
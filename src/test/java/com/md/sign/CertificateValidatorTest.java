@@ -0,0 +1,173 @@
+package com.md.sign;
+
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.BasicConstraints;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509v3CertificateBuilder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509ExtensionUtils;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.io.OutputStream;
+import java.math.BigInteger;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.cert.X509Certificate;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CertificateValidatorTest {
+
+    private static final AtomicLong SERIAL = new AtomicLong(1);
+
+    private static KeyPair rootKeys;
+    private static KeyPair intermediateKeys;
+    private static KeyPair leafKeys;
+    private static KeyPair otherKeys;
+    private static X509Certificate root;
+    private static X509Certificate intermediate;
+    private static X509Certificate leaf;
+
+    @TempDir
+    Path directory;
+
+    private TieredCache cache;
+
+    @BeforeAll
+    static void createChain() throws Exception {
+        rootKeys = generateKeyPair();
+        intermediateKeys = generateKeyPair();
+        leafKeys = generateKeyPair();
+        otherKeys = generateKeyPair();
+        root = certificate("CN=Test Root", rootKeys, "CN=Test Root", rootKeys, null, true, true);
+        intermediate = certificate("CN=Test Intermediate", intermediateKeys, "CN=Test Root", rootKeys, root, true, true);
+        leaf = certificate("CN=Test Signer", leafKeys, "CN=Test Intermediate", intermediateKeys, intermediate,
+                false, true);
+    }
+
+    @AfterEach
+    void closeCache() {
+        if (cache != null) {
+            cache.close();
+        }
+    }
+
+    private static KeyPair generateKeyPair() throws Exception {
+        KeyPairGenerator generator = KeyPairGenerator.getInstance("RSA");
+        generator.initialize(2048);
+        return generator.generateKeyPair();
+    }
+
+    /**
+     * Creates a certificate issued by {@code issuerKeys}. The authority key
+     * identifier is taken from {@code issuer}, or from the issuer key if null.
+     */
+    private static X509Certificate certificate(String subject, KeyPair subjectKeys, String issuerName,
+                                               KeyPair issuerKeys, X509Certificate issuer, boolean ca,
+                                               boolean subjectKeyIdentifier) throws Exception {
+        Instant now = Instant.now();
+        JcaX509ExtensionUtils extensions = new JcaX509ExtensionUtils();
+        X509v3CertificateBuilder builder = new JcaX509v3CertificateBuilder(
+                new X500Name(issuerName),
+                BigInteger.valueOf(SERIAL.getAndIncrement()),
+                Date.from(now.minus(1, ChronoUnit.DAYS)),
+                Date.from(now.plus(365, ChronoUnit.DAYS)),
+                new X500Name(subject),
+                subjectKeys.getPublic())
+                .addExtension(Extension.authorityKeyIdentifier, false, issuer != null
+                        ? extensions.createAuthorityKeyIdentifier(issuer)
+                        : extensions.createAuthorityKeyIdentifier(issuerKeys.getPublic()))
+                .addExtension(Extension.basicConstraints, true, new BasicConstraints(ca))
+                .addExtension(Extension.keyUsage, true, new KeyUsage(ca
+                        ? KeyUsage.keyCertSign | KeyUsage.cRLSign | KeyUsage.digitalSignature
+                        : KeyUsage.digitalSignature));
+        if (subjectKeyIdentifier) {
+            builder.addExtension(Extension.subjectKeyIdentifier, false,
+                    extensions.createSubjectKeyIdentifier(subjectKeys.getPublic()));
+        }
+        return new JcaX509CertificateConverter().getCertificate(
+                builder.build(new JcaContentSignerBuilder("SHA256withRSA").build(issuerKeys.getPrivate())));
+    }
+
+    private CertificateValidator validator(X509Certificate... anchors) throws Exception {
+        KeyStore trustStore = KeyStore.getInstance("JKS");
+        trustStore.load(null, null);
+        for (int i = 0; i < anchors.length; i++) {
+            trustStore.setCertificateEntry("anchor" + i, anchors[i]);
+        }
+        Path path = directory.resolve("truststore.jks");
+        try (OutputStream out = Files.newOutputStream(path)) {
+            trustStore.store(out, "changeit".toCharArray());
+        }
+        cache = new TieredCache(CacheBackend.none(), 3600, 60_000);
+        return new CertificateValidator(new DefaultResourceLoader(), path.toUri().toString(), "changeit", 16,
+                cache);
+    }
+
+    @Test
+    void buildsChainThroughIntermediate() throws Exception {
+        CertificateValidator validator = validator(root);
+
+        assertThatCode(() -> validator.validateCertificateChain(leaf, List.of(intermediate)))
+                .doesNotThrowAnyException();
+        // Served from the validated path cache the second time
+        assertThatCode(() -> validator.validateCertificateChain(leaf, List.of(intermediate)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void findsIntermediateAmongUnrelatedCertificates() throws Exception {
+        X509Certificate unrelated = certificate("CN=Unrelated", otherKeys, "CN=Unrelated", otherKeys, null,
+                true, true);
+        CertificateValidator validator = validator(unrelated, root);
+
+        assertThatCode(() -> validator.validateCertificateChain(leaf, List.of(unrelated, intermediate, leaf)))
+                .doesNotThrowAnyException();
+    }
+
+    @Test
+    void rejectsChainWithoutIntermediate() throws Exception {
+        CertificateValidator validator = validator(root);
+
+        assertThatThrownBy(() -> validator.validateCertificateChain(leaf, List.of()))
+                .isInstanceOf(CertificateValidationException.class)
+                .hasMessageContaining("No trusted issuer found");
+    }
+
+    @Test
+    void rejectsIssuerWithMatchingNameButOtherKey() throws Exception {
+        X509Certificate impostor = certificate("CN=Test Intermediate", otherKeys, "CN=Test Root", rootKeys, root,
+                true, true);
+        CertificateValidator validator = validator(root);
+
+        assertThatThrownBy(() -> validator.validateCertificateChain(leaf, List.of(impostor)))
+                .isInstanceOf(CertificateValidationException.class)
+                .hasMessageContaining("No trusted issuer found");
+    }
+
+    @Test
+    void acceptsIssuerWithoutSubjectKeyIdentifierWhoseKeyVerifies() throws Exception {
+        X509Certificate plainIntermediate = certificate("CN=Test Intermediate", intermediateKeys, "CN=Test Root",
+                rootKeys, root, true, false);
+        CertificateValidator validator = validator(root);
+
+        assertThatCode(() -> validator.validateCertificateChain(leaf, List.of(plainIntermediate)))
+                .doesNotThrowAnyException();
+    }
+}
@@ -0,0 +1,94 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ContentCanonicalizerTest {
+
+    private static final List<Canonicalization> CANONICALIZATIONS = new ArrayList<>();
+
+    static {
+        for (int steps = 0; steps < 8; steps++) {
+            CANONICALIZATIONS.add(new Canonicalization((steps & 1) != 0, (steps & 2) != 0, (steps & 4) != 0));
+        }
+    }
+
+    /**
+     * Straightforward step-by-step canonicalization to compare against.
+     */
+    private static byte[] reference(String content, Canonicalization canonicalization) {
+        String text = content;
+        if (canonicalization.nfc()) {
+            text = Normalizer.normalize(text, Normalizer.Form.NFC);
+        }
+        text = text.trim();
+        if (canonicalization.normalizeLineEndings()) {
+            text = text.replace("\r\n", "\n").replace('\r', '\n');
+        }
+        if (canonicalization.stripTrailingWhitespace()) {
+            text = text.replaceAll("[ \t]+(?=[\r\n])", "");
+        }
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static void assertMatchesReference(String content) {
+        for (Canonicalization canonicalization : CANONICALIZATIONS) {
+            CanonicalContent canonical = ContentCanonicalizer.canonicalize(content, canonicalization);
+            byte[] expected = reference(content, canonicalization);
+
+            assertThat(canonical.toByteArray()).as("%s of %s", canonicalization, content).isEqualTo(expected);
+            assertThat(canonical.length()).isEqualTo(expected.length);
+            assertThat(canonical.digest()).isEqualTo(Digests.sha256(expected));
+        }
+    }
+
+    @Test
+    void normalizesLineEndings() {
+        assertMatchesReference("a\r\nb\r\n\r\nc");
+        assertMatchesReference("a\rb\r\rc\r\n");
+        assertMatchesReference("\r\n  lead and trail  \r\n");
+    }
+
+    @Test
+    void stripsTrailingWhitespaceBeforeEveryLineEnding() {
+        assertMatchesReference("a  \nb\t\t\r\nc \t \rd");
+        assertMatchesReference("inner  space\tkept\n  indent kept");
+        assertMatchesReference("   \n \t \n");
+    }
+
+    @Test
+    void composesToNfc() {
+        assertMatchesReference("Cafe\u0301 A\u030A \u1E9B\u0323");
+        assertMatchesReference("e\u0301\u0301\r\n\u212B");
+        assertThat(ContentCanonicalizer.canonicalize("e\u0301", new Canonicalization(false, false, true))
+                .toByteArray()).isEqualTo("\u00E9".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void encodesSurrogatesLikeStringGetBytes() {
+        assertMatchesReference("smile \uD83D\uDE00 \uD834\uDD1E");
+        assertMatchesReference("lone high \uD800 and low \uDC00 end\uD83D");
+        assertMatchesReference("\uDE00\uD83D");
+    }
+
+    @Test
+    void matchesReferenceOnRandomContentBeyondDigestChunk() {
+        char[] alphabet = {'a', 'Z', ' ', '\t', '\r', '\n', '\u00E9', 'e', '\u0301', '\u4E2D', '\uD83D', '\uDE00'};
+        Random random = new Random(1);
+        for (int run = 0; run < 50; run++) {
+            StringBuilder content = new StringBuilder();
+            int length = run < 45 ? random.nextInt(64) : 20_000 + random.nextInt(5_000);
+            for (int i = 0; i < length; i++) {
+                content.append(alphabet[random.nextInt(alphabet.length)]);
+            }
+            assertMatchesReference(content.toString());
+        }
+    }
+}
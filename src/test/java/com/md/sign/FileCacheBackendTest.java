@@ -0,0 +1,87 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FileCacheBackendTest {
+
+    private static final byte[] KEY = "0123456789abcdef0123456789abcdef".getBytes(StandardCharsets.UTF_8);
+
+    @TempDir
+    Path directory;
+
+    private long entryFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".entry")).count();
+        }
+    }
+
+    private Path entryFile(Path except) throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(file -> file.toString().endsWith(".entry") && !file.equals(except))
+                    .findFirst().orElseThrow();
+        }
+    }
+
+    @Test
+    void sweepRemovesOnlyExpiredEntries() throws IOException {
+        try (FileCacheBackend backend = new FileCacheBackend(directory, KEY, 0)) {
+            long now = System.currentTimeMillis();
+            backend.put("expired", "a".getBytes(StandardCharsets.UTF_8), now - 1000);
+            backend.put("live", "b".getBytes(StandardCharsets.UTF_8), now + 60_000);
+
+            assertThat(backend.sweep()).isEqualTo(1);
+
+            assertThat(entryFiles()).isEqualTo(1);
+            assertThat(backend.get("live")).isEqualTo("b".getBytes(StandardCharsets.UTF_8));
+            assertThat(backend.get("expired")).isNull();
+        }
+    }
+
+    @Test
+    void advancingGenerationRemovesAllEntries() throws IOException {
+        try (FileCacheBackend backend = new FileCacheBackend(directory, KEY, 0)) {
+            backend.put("live", "b".getBytes(StandardCharsets.UTF_8), System.currentTimeMillis() + 60_000);
+            long generation = backend.generation();
+
+            assertThat(backend.advanceGeneration()).isEqualTo(generation + 1);
+
+            assertThat(entryFiles()).isZero();
+            assertThat(backend.generation()).isEqualTo(generation + 1);
+        }
+    }
+
+    @Test
+    void rejectsEntriesNotWrittenWithTheKey() throws IOException {
+        long expiresAt = System.currentTimeMillis() + 60_000;
+        byte[] otherKey = "fedcba9876543210fedcba9876543210".getBytes(StandardCharsets.UTF_8);
+        try (FileCacheBackend backend = new FileCacheBackend(directory, KEY, 0);
+             FileCacheBackend forger = new FileCacheBackend(directory, otherKey, 0)) {
+            forger.put("forged", "x".getBytes(StandardCharsets.UTF_8), expiresAt);
+            assertThat(backend.get("forged")).isNull();
+            assertThat(entryFiles()).isZero();
+
+            backend.put("a", "valid-a".getBytes(StandardCharsets.UTF_8), expiresAt);
+            Path a = entryFile(null);
+            backend.put("b", "valid-b".getBytes(StandardCharsets.UTF_8), expiresAt);
+            Path b = entryFile(a);
+            Files.copy(a, b, StandardCopyOption.REPLACE_EXISTING);
+            assertThat(backend.get("a")).isNotNull();
+            assertThat(backend.get("b")).isNull();
+
+            byte[] data = Files.readAllBytes(a);
+            data[Long.BYTES] ^= 1;
+            Files.write(a, data);
+            assertThat(backend.get("a")).isNull();
+        }
+    }
+}
@@ -0,0 +1,94 @@
+package com.md.sign;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Documents sent by a load test. Bodies are generated from the profile seed,
+ * so two runs with the same profile send the same documents. Each document is
+ * signed through the server under test up to its signature count, keeping the
+ * version with one signature less for sign requests.
+ */
+final class LoadCorpus {
+
+    record Document(int size, int signatures, String toSign, String toVerify) {
+    }
+
+    private static final String[] WORDS = {
+            "signature", "document", "markdown", "section", "content", "verify", "certificate",
+            "timestamp", "digest", "canonical", "review", "approved", "release", "café", "naïve",
+            "the", "of", "and", "to", "in", "is", "for", "with", "on", "by"
+    };
+
+    private final List<Document> documents;
+
+    private LoadCorpus(List<Document> documents) {
+        this.documents = documents;
+    }
+
+    static LoadCorpus prepare(LoadProfile profile, LoadGenerator.Client client) throws Exception {
+        SplittableRandom random = new SplittableRandom(profile.seed());
+        List<String> bodies = new ArrayList<>(profile.documents());
+        List<Integer> signatureCounts = new ArrayList<>(profile.documents());
+        for (int i = 0; i < profile.documents(); i++) {
+            bodies.add(generateBody(i, (int) profile.sizes().sample(random), random));
+            signatureCounts.add((int) Math.max(1, profile.signatures().sample(random)));
+        }
+
+        ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, profile.concurrency()));
+        try {
+            List<Future<Document>> prepared = new ArrayList<>(bodies.size());
+            for (int i = 0; i < bodies.size(); i++) {
+                String body = bodies.get(i);
+                int signatures = signatureCounts.get(i);
+                prepared.add(executor.submit(() -> {
+                    String toSign = body;
+                    String signed = body;
+                    for (int s = 0; s < signatures; s++) {
+                        toSign = signed;
+                        signed = client.sign(signed);
+                    }
+                    return new Document(body.length(), signatures, toSign, signed);
+                }));
+            }
+            List<Document> documents = new ArrayList<>(prepared.size());
+            for (Future<Document> document : prepared) {
+                documents.add(document.get());
+            }
+            return new LoadCorpus(documents);
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    Document pick(SplittableRandom random) {
+        return documents.get(random.nextInt(documents.size()));
+    }
+
+    int size() {
+        return documents.size();
+    }
+
+    private static String generateBody(int index, int size, SplittableRandom random) {
+        StringBuilder body = new StringBuilder(size + 128);
+        body.append("# Load test document ").append(index).append("\n\n");
+        int section = 0;
+        while (body.length() < size) {
+            body.append("## Section ").append(++section).append("\n\n");
+            int sentences = 3 + random.nextInt(6);
+            for (int s = 0; s < sentences && body.length() < size; s++) {
+                int words = 6 + random.nextInt(12);
+                for (int w = 0; w < words; w++) {
+                    body.append(w == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+                }
+                body.append(". ");
+            }
+            body.append("\n\n");
+        }
+        return body.toString();
+    }
+}
@@ -0,0 +1,382 @@
+package com.md.sign;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.bouncycastle.asn1.x500.X500Name;
+import org.bouncycastle.asn1.x509.Extension;
+import org.bouncycastle.asn1.x509.KeyUsage;
+import org.bouncycastle.cert.X509CertificateHolder;
+import org.bouncycastle.cert.jcajce.JcaX509CertificateConverter;
+import org.bouncycastle.cert.jcajce.JcaX509v3CertificateBuilder;
+import org.bouncycastle.operator.jcajce.JcaContentSignerBuilder;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.math.BigInteger;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.KeyPair;
+import java.security.KeyPairGenerator;
+import java.security.KeyStore;
+import java.security.SecureRandom;
+import java.security.cert.Certificate;
+import java.security.cert.X509Certificate;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Load generator for the sign and verify endpoints.
+ * <p>
+ * Unless {@code target} is set, the application is started in-process on a
+ * random port with a freshly generated keystore, the embedded timestamp
+ * authority and a temporary signature index, so a run needs no network access
+ * and runs from different builds can be compared. Arguments of the form
+ * {@code key=value} configure the harness (see {@link LoadProfile}), and
+ * arguments starting with {@code --} are passed to the application.
+ * <p>
+ * In the closed model a fixed number of users each send a request and wait for
+ * the response. In the open model requests are sent at a fixed rate whatever
+ * the response times, and latency is measured from the intended send time, so
+ * a stalled server is not hidden by the generator slowing down. Latencies are
+ * recorded in HdrHistograms, only for requests started after the warm-up.
+ * <p>
+ * Run with {@code mvn -Pload-test verify -DskipTests -Dload.args="model=open rate=200"}.
+ */
+public class LoadGenerator {
+
+    enum Operation {
+        SIGN("/api/markdown/sign"), VERIFY("/api/markdown/verify");
+
+        private final String path;
+
+        Operation(String path) {
+            this.path = path;
+        }
+    }
+
+    /**
+     * Latencies and outcomes of one operation.
+     */
+    private static final class Measurement {
+        final Recorder latency = new Recorder(3);
+        final LongAdder completed = new LongAdder();
+        final LongAdder failed = new LongAdder();
+        Histogram histogram;
+    }
+
+    private static final Duration REQUEST_TIMEOUT = Duration.ofSeconds(60);
+    private static final long DRAIN_TIMEOUT_NANOS = TimeUnit.SECONDS.toNanos(60);
+
+    private final LoadProfile profile;
+    private final Client client;
+    private final Map<Operation, Measurement> measurements = new EnumMap<>(Operation.class);
+    private volatile long measureStart;
+    private volatile long measureEnd;
+
+    LoadGenerator(LoadProfile profile, Client client) {
+        this.profile = profile;
+        this.client = client;
+        for (Operation operation : Operation.values()) {
+            measurements.put(operation, new Measurement());
+        }
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadProfile profile = LoadProfile.parse(args);
+        System.out.println("Load test: " + profile.describe());
+
+        ConfigurableApplicationContext application = null;
+        URI target;
+        if (profile.target() != null) {
+            target = URI.create(profile.target());
+        } else {
+            application = startApplication(args);
+            int port = ((WebServerApplicationContext) application).getWebServer().getPort();
+            target = URI.create("http://localhost:" + port);
+        }
+
+        try {
+            System.out.println("Target: " + target);
+            new LoadGenerator(profile, new Client(target)).run();
+        } finally {
+            if (application != null) {
+                application.close();
+            }
+        }
+    }
+
+    void run() throws Exception {
+        long prepareStart = System.nanoTime();
+        LoadCorpus corpus = LoadCorpus.prepare(profile, client);
+        System.out.printf("Prepared %d documents in %d ms%n", corpus.size(),
+                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - prepareStart));
+
+        long start = System.nanoTime();
+        measureStart = start + TimeUnit.SECONDS.toNanos(profile.warmupSeconds());
+        measureEnd = measureStart + TimeUnit.SECONDS.toNanos(profile.durationSeconds());
+
+        if (profile.model() == LoadProfile.Model.CLOSED) {
+            runClosed(corpus);
+        } else {
+            runOpen(corpus);
+        }
+
+        for (Measurement measurement : measurements.values()) {
+            measurement.histogram = measurement.latency.getIntervalHistogram();
+        }
+        report();
+    }
+
+    private void runClosed(LoadCorpus corpus) throws InterruptedException {
+        List<Thread> users = new ArrayList<>(profile.concurrency());
+        for (int i = 0; i < profile.concurrency(); i++) {
+            SplittableRandom random = new SplittableRandom(profile.seed() * 31 + i);
+            Thread user = new Thread(() -> {
+                while (System.nanoTime() < measureEnd) {
+                    Operation operation = nextOperation(random);
+                    long startNanos = System.nanoTime();
+                    boolean success;
+                    try {
+                        HttpResponse<String> response = client.send(operation, document(operation, corpus, random));
+                        success = isSuccess(operation, response);
+                    } catch (IOException e) {
+                        success = false;
+                    } catch (InterruptedException e) {
+                        return;
+                    }
+                    record(operation, startNanos, success);
+                }
+            }, "load-user-" + i);
+            user.start();
+            users.add(user);
+        }
+        for (Thread user : users) {
+            user.join();
+        }
+    }
+
+    private void runOpen(LoadCorpus corpus) throws InterruptedException {
+        SplittableRandom random = new SplittableRandom(profile.seed());
+        AtomicInteger inFlight = new AtomicInteger();
+        long interval = TimeUnit.SECONDS.toNanos(1) / Math.max(1, profile.rate());
+        long start = System.nanoTime();
+
+        for (long i = 0; ; i++) {
+            long intended = start + i * interval;
+            if (intended >= measureEnd) {
+                break;
+            }
+            long wait = intended - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            Operation operation = nextOperation(random);
+            inFlight.incrementAndGet();
+            client.sendAsync(operation, document(operation, corpus, random))
+                    .whenComplete((response, error) -> {
+                        record(operation, intended, error == null && isSuccess(operation, response));
+                        inFlight.decrementAndGet();
+                    });
+        }
+
+        long drainDeadline = System.nanoTime() + DRAIN_TIMEOUT_NANOS;
+        while (inFlight.get() > 0 && System.nanoTime() < drainDeadline) {
+            Thread.sleep(10);
+        }
+        if (inFlight.get() > 0) {
+            System.out.printf("%d requests still in flight after the drain timeout%n", inFlight.get());
+        }
+    }
+
+    private Operation nextOperation(SplittableRandom random) {
+        return random.nextInt(100) < profile.signPercent() ? Operation.SIGN : Operation.VERIFY;
+    }
+
+    private static String document(Operation operation, LoadCorpus corpus, SplittableRandom random) {
+        LoadCorpus.Document document = corpus.pick(random);
+        return operation == Operation.SIGN ? document.toSign() : document.toVerify();
+    }
+
+    private static boolean isSuccess(Operation operation, HttpResponse<String> response) {
+        return response.statusCode() == 200
+                && (operation != Operation.VERIFY || !response.body().contains("\"valid\":false"));
+    }
+
+    /**
+     * Records a request that started at the given time, if it started within
+     * the measured period.
+     */
+    private void record(Operation operation, long startNanos, boolean success) {
+        if (startNanos < measureStart || startNanos >= measureEnd) {
+            return;
+        }
+        Measurement measurement = measurements.get(operation);
+        measurement.latency.recordValue(TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - startNanos));
+        measurement.completed.increment();
+        if (!success) {
+            measurement.failed.increment();
+        }
+    }
+
+    private void report() throws IOException {
+        double seconds = profile.durationSeconds();
+        Histogram total = new Histogram(3);
+        long totalCompleted = 0;
+        long totalFailed = 0;
+
+        System.out.println();
+        System.out.printf("%-8s %9s %7s %10s %9s %9s %9s %9s %9s%n",
+                "", "requests", "errors", "req/s", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Map.Entry<Operation, Measurement> entry : measurements.entrySet()) {
+            Measurement measurement = entry.getValue();
+            printRow(entry.getKey().name().toLowerCase(), measurement.histogram,
+                    measurement.completed.sum(), measurement.failed.sum(), seconds);
+            total.add(measurement.histogram);
+            totalCompleted += measurement.completed.sum();
+            totalFailed += measurement.failed.sum();
+
+            if (profile.histogramPrefix() != null) {
+                writeDistribution(Path.of(profile.histogramPrefix() + "-" + entry.getKey().name().toLowerCase()
+                        + ".hgrm"), measurement.histogram);
+            }
+        }
+        printRow("total", total, totalCompleted, totalFailed, seconds);
+        if (profile.histogramPrefix() != null) {
+            writeDistribution(Path.of(profile.histogramPrefix() + "-total.hgrm"), total);
+        }
+    }
+
+    private static void printRow(String name, Histogram histogram, long completed, long failed, double seconds) {
+        System.out.printf("%-8s %9d %7d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, completed, failed, completed / seconds,
+                millis(histogram.getValueAtPercentile(50)),
+                millis(histogram.getValueAtPercentile(90)),
+                millis(histogram.getValueAtPercentile(99)),
+                millis(histogram.getValueAtPercentile(99.9)),
+                millis(histogram.getMaxValue()));
+    }
+
+    private static double millis(long micros) {
+        return micros / 1000.0;
+    }
+
+    private static void writeDistribution(Path path, Histogram histogram) throws IOException {
+        try (OutputStream out = Files.newOutputStream(path); PrintStream printer = new PrintStream(out)) {
+            histogram.outputPercentileDistribution(printer, 1000.0);
+        }
+        System.out.println("Wrote latency distribution in ms to " + path);
+    }
+
+    /**
+     * Starts the application on a random port with a generated keystore and a
+     * temporary signature index. Arguments starting with {@code --} override
+     * these defaults.
+     */
+    private static ConfigurableApplicationContext startApplication(String[] args) throws Exception {
+        Path workDir = Files.createTempDirectory("markdown-sign-load");
+        String password = Long.toHexString(new SecureRandom().nextLong());
+        Path keystore = generateKeystore(workDir.resolve("keystore.p12"), "load-test", password);
+
+        Map<String, String> options = new LinkedHashMap<>();
+        options.put("server.port", "0");
+        options.put("signature.keystore.path", keystore.toUri().toString());
+        options.put("signature.keystore.password", password);
+        options.put("signature.keystore.alias", "load-test");
+        options.put("signature.index.path", workDir.resolve("signature-index.bin").toString());
+        options.put("signature.tsa.url", "");
+        options.put("logging.level.com.md.sign", "INFO");
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                int separator = arg.indexOf('=');
+                options.put(arg.substring(2, separator > 0 ? separator : arg.length()),
+                        separator > 0 ? arg.substring(separator + 1) : "");
+            }
+        }
+
+        List<String> applicationArgs = new ArrayList<>();
+        options.forEach((key, value) -> applicationArgs.add("--" + key + "=" + value));
+        return SpringApplication.run(SignApplication.class, applicationArgs.toArray(new String[0]));
+    }
+
+    private static Path generateKeystore(Path path, String alias, String password) throws Exception {
+        KeyPairGenerator keyPairGenerator = KeyPairGenerator.getInstance("RSA");
+        keyPairGenerator.initialize(2048);
+        KeyPair keyPair = keyPairGenerator.generateKeyPair();
+
+        X500Name subject = new X500Name("CN=Load Test Signer,O=MarkdownSign");
+        Instant now = Instant.now();
+        X509CertificateHolder holder = new JcaX509v3CertificateBuilder(
+                subject,
+                new BigInteger(64, new SecureRandom()),
+                Date.from(now.minus(1, ChronoUnit.DAYS)),
+                Date.from(now.plus(365, ChronoUnit.DAYS)),
+                subject,
+                keyPair.getPublic())
+                .addExtension(Extension.keyUsage, true,
+                        new KeyUsage(KeyUsage.digitalSignature | KeyUsage.nonRepudiation))
+                .build(new JcaContentSignerBuilder("SHA256withRSA").build(keyPair.getPrivate()));
+        X509Certificate certificate = new JcaX509CertificateConverter().getCertificate(holder);
+
+        KeyStore keyStore = KeyStore.getInstance("PKCS12");
+        keyStore.load(null, null);
+        keyStore.setKeyEntry(alias, keyPair.getPrivate(), password.toCharArray(), new Certificate[]{certificate});
+        try (OutputStream out = Files.newOutputStream(path)) {
+            keyStore.store(out, password.toCharArray());
+        }
+        return path;
+    }
+
+    /**
+     * HTTP client for the endpoints under test.
+     */
+    static final class Client {
+        private final HttpClient http = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(10))
+                .build();
+        private final URI target;
+
+        Client(URI target) {
+            this.target = target;
+        }
+
+        HttpResponse<String> send(Operation operation, String markdown) throws IOException, InterruptedException {
+            return http.send(request(operation, markdown), HttpResponse.BodyHandlers.ofString());
+        }
+
+        CompletableFuture<HttpResponse<String>> sendAsync(Operation operation, String markdown) {
+            return http.sendAsync(request(operation, markdown), HttpResponse.BodyHandlers.ofString());
+        }
+
+        String sign(String markdown) throws IOException, InterruptedException {
+            HttpResponse<String> response = send(Operation.SIGN, markdown);
+            if (response.statusCode() != 200) {
+                throw new IOException("Sign request failed with " + response.statusCode() + ": " + response.body());
+            }
+            return response.body();
+        }
+
+        private HttpRequest request(Operation operation, String markdown) {
+            return HttpRequest.newBuilder(target.resolve(operation.path))
+                    .timeout(REQUEST_TIMEOUT)
+                    .header("Content-Type", "text/markdown;charset=UTF-8")
+                    .POST(HttpRequest.BodyPublishers.ofString(markdown))
+                    .build();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.md.sign;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SplittableRandom;
+
+/**
+ * Settings of a load test run, parsed from {@code key=value} arguments.
+ * <p>
+ * Distributions are written as weighted values, for example
+ * {@code sizes=1k:60,16k:30,256k:10} or {@code signatures=1:70,5:30}.
+ * The signature count is the number of signatures a document holds after the
+ * request: verify requests send documents with that many signatures, sign
+ * requests send documents with one less.
+ *
+ * @param target      base URL of a running server, or null to start one in-process
+ * @param model       closed (fixed number of users) or open (fixed arrival rate)
+ * @param concurrency number of users in the closed model
+ * @param rate        requests per second in the open model
+ * @param warmupSeconds  seconds of traffic before measuring
+ * @param durationSeconds seconds of measured traffic
+ * @param signPercent percentage of sign requests, the rest are verify requests
+ * @param sizes       document body sizes in bytes
+ * @param signatures  signatures per document
+ * @param documents   number of distinct documents to prepare
+ * @param seed        random seed for the documents and the request sequence
+ * @param histogramPrefix path prefix for percentile distribution files, or null
+ */
+public record LoadProfile(String target, Model model, int concurrency, int rate,
+                          int warmupSeconds, int durationSeconds, int signPercent,
+                          Distribution sizes, Distribution signatures, int documents,
+                          long seed, String histogramPrefix) {
+
+    public enum Model {
+        CLOSED, OPEN
+    }
+
+    /**
+     * Parses the harness arguments. Arguments starting with {@code --} are left
+     * for the application and ignored here.
+     */
+    public static LoadProfile parse(String[] args) {
+        Map<String, String> values = new LinkedHashMap<>();
+        values.put("model", "closed");
+        values.put("concurrency", "16");
+        values.put("rate", "100");
+        values.put("warmup", "10");
+        values.put("duration", "30");
+        values.put("mix", "sign:30,verify:70");
+        values.put("sizes", "1k:60,16k:30,256k:10");
+        values.put("signatures", "1:60,2:30,5:10");
+        values.put("documents", "200");
+        values.put("seed", "42");
+
+        for (String arg : args) {
+            if (arg.startsWith("--")) {
+                continue;
+            }
+            int separator = arg.indexOf('=');
+            if (separator < 1) {
+                throw new IllegalArgumentException("Expected key=value argument: " + arg);
+            }
+            String key = arg.substring(0, separator);
+            if (!values.containsKey(key) && !key.equals("target") && !key.equals("hgrm")) {
+                throw new IllegalArgumentException("Unknown load test setting: " + key);
+            }
+            values.put(key, arg.substring(separator + 1));
+        }
+
+        return new LoadProfile(
+                values.get("target"),
+                Model.valueOf(values.get("model").toUpperCase()),
+                Integer.parseInt(values.get("concurrency")),
+                Integer.parseInt(values.get("rate")),
+                Integer.parseInt(values.get("warmup")),
+                Integer.parseInt(values.get("duration")),
+                parseSignPercent(values.get("mix")),
+                Distribution.parse(values.get("sizes")),
+                Distribution.parse(values.get("signatures")),
+                Integer.parseInt(values.get("documents")),
+                Long.parseLong(values.get("seed")),
+                values.get("hgrm")
+        );
+    }
+
+    private static int parseSignPercent(String mix) {
+        int sign = 0;
+        int verify = 0;
+        for (String entry : mix.split(",")) {
+            String[] parts = entry.trim().split(":");
+            int weight = Integer.parseInt(parts[1].trim());
+            switch (parts[0].trim()) {
+                case "sign" -> sign += weight;
+                case "verify" -> verify += weight;
+                default -> throw new IllegalArgumentException("Unknown operation in mix: " + parts[0]);
+            }
+        }
+        if (sign + verify <= 0) {
+            throw new IllegalArgumentException("Mix has no weight: " + mix);
+        }
+        return sign * 100 / (sign + verify);
+    }
+
+    public String describe() {
+        String load = model == Model.CLOSED
+                ? concurrency + " users"
+                : rate + " requests/s";
+        return String.format("%s model, %s, %d s measured after %d s warm-up, %d%% sign / %d%% verify, "
+                        + "sizes %s, signatures %s, %d documents, seed %d",
+                model.name().toLowerCase(), load, durationSeconds, warmupSeconds, signPercent,
+                100 - signPercent, sizes, signatures, documents, seed);
+    }
+
+    /**
+     * A discrete distribution of integer values with integer weights.
+     * Values accept a {@code k} or {@code m} suffix for multiples of 1024.
+     */
+    public record Distribution(List<Long> values, List<Integer> weights, String spec) {
+
+        static Distribution parse(String spec) {
+            List<Long> values = new ArrayList<>();
+            List<Integer> weights = new ArrayList<>();
+            for (String entry : spec.split(",")) {
+                String[] parts = entry.trim().split(":");
+                values.add(parseSize(parts[0].trim()));
+                weights.add(parts.length > 1 ? Integer.parseInt(parts[1].trim()) : 1);
+            }
+            if (weights.stream().mapToInt(Integer::intValue).sum() <= 0) {
+                throw new IllegalArgumentException("Distribution has no weight: " + spec);
+            }
+            return new Distribution(List.copyOf(values), List.copyOf(weights), spec);
+        }
+
+        long sample(SplittableRandom random) {
+            int total = weights.stream().mapToInt(Integer::intValue).sum();
+            int pick = random.nextInt(total);
+            for (int i = 0; i < values.size(); i++) {
+                pick -= weights.get(i);
+                if (pick < 0) {
+                    return values.get(i);
+                }
+            }
+            return values.get(values.size() - 1);
+        }
+
+        private static long parseSize(String value) {
+            String lower = value.toLowerCase();
+            if (lower.endsWith("k")) {
+                return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1024;
+            }
+            if (lower.endsWith("m")) {
+                return Long.parseLong(lower.substring(0, lower.length() - 1)) * 1024 * 1024;
+            }
+            return Long.parseLong(lower);
+        }
+
+        @Override
+        public String toString() {
+            return spec;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarkdownHtmlTest {
+
+    private static String render(String markdown) {
+        return MarkdownHtml.render(MarkdownParser.parse(markdown).getAst());
+    }
+
+    @Test
+    void escapesRawHtmlBlocksAndInlineHtml() {
+        String html = render("# Title\n\n<script>alert(1)</script>\n\nHello <img src=x onerror=alert(2)> *world*\n");
+
+        assertThat(html).doesNotContain("<script", "<img")
+                .contains("&lt;script&gt;alert(1)&lt;/script&gt;")
+                .contains("<h1>Title</h1>")
+                .contains("<em>world</em>");
+    }
+
+    @Test
+    void dropsLinkAndImageTargetsWithDisallowedSchemes() {
+        String html = render("""
+                [a](JaVaScript:alert(1)) [b](<java\tscript:alert(2)>) [c](data:text/html,x)
+                ![d](vbscript:msgbox) [e][ref] <javascript:alert(3)>
+
+                [ref]: JAVASCRIPT:alert(4)
+                """);
+
+        assertThat(html.toLowerCase()).doesNotContain("href=\"javascript", "href=\"data", "src=\"vbscript",
+                "href=\"java\tscript");
+        assertThat(html).doesNotContain("href=\"JaVaScript", "href=\"JAVASCRIPT");
+    }
+
+    @Test
+    void keepsRelativeHttpAndMailtoTargets() {
+        String html = render("[a](https://example.com/x) [b](docs/page.md#top) [c](mailto:a@example.com) "
+                + "![d](/img/logo.png) [e](?q=a:b)\n");
+
+        assertThat(html).contains("href=\"https://example.com/x\"", "href=\"docs/page.md#top\"",
+                "href=\"mailto:a@example.com\"", "src=\"/img/logo.png\"", "href=\"?q=a:b\"");
+    }
+
+    @Test
+    void recognisesSchemesThatBrowsersWouldRead() {
+        assertThat(MarkdownHtml.isAllowedUrl("JaVaScript:alert(1)")).isFalse();
+        assertThat(MarkdownHtml.isAllowedUrl(" java\tscript:alert(1)")).isFalse();
+        assertThat(MarkdownHtml.isAllowedUrl("HTTPS://example.com")).isTrue();
+        assertThat(MarkdownHtml.isAllowedUrl("path/with:colon")).isTrue();
+        assertThat(MarkdownHtml.isAllowedUrl("#anchor")).isTrue();
+    }
+}
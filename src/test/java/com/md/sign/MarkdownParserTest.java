@@ -0,0 +1,75 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class MarkdownParserTest {
+
+    @Test
+    void roundTripsFrontMatterAndContent() {
+        String markdown = """
+                ---
+                title: Quarterly report
+                tags:
+                - finance
+                - draft
+                ---
+
+                # Summary
+
+                Body text
+                """;
+
+        MarkdownDocument doc = MarkdownParser.parse(markdown);
+        MarkdownDocument reparsed = MarkdownParser.parse(MarkdownParser.serialize(doc));
+
+        assertThat(doc.getFrontMatter()).containsEntry("title", "Quarterly report")
+                .containsEntry("tags", List.of("finance", "draft"));
+        assertThat(reparsed.getFrontMatter()).isEqualTo(doc.getFrontMatter());
+        assertThat(reparsed.getContent()).isEqualTo(doc.getContent()).isEqualTo("# Summary\n\nBody text");
+        assertThat(MarkdownParser.serialize(reparsed)).isEqualTo(MarkdownParser.serialize(doc));
+    }
+
+    @Test
+    void roundTripsSignaturesAlongsideFrontMatter() {
+        MarkdownDocument doc = MarkdownParser.parse("---\ntitle: Contract\n---\n\nTerms\n");
+        doc.addSignature(new DocumentSignature("QUJD", "CN=Alice,O=Test",
+                Instant.parse("2030-01-01T00:00:00Z"), Map.of("role", "approver"),
+                Instant.parse("2024-01-01T00:00:00Z"), null, "md-c14n-v1", List.of("terms"), null));
+
+        MarkdownDocument reparsed = MarkdownParser.parse(MarkdownParser.serialize(doc));
+
+        assertThat(reparsed.getFrontMatter()).containsEntry("title", "Contract").hasSize(1);
+        assertThat(reparsed.getContent()).isEqualTo("Terms");
+        assertThat(reparsed.getSignatures()).hasSize(1);
+        DocumentSignature signature = reparsed.getSignatures().get(0);
+        assertThat(signature.signature()).isEqualTo("QUJD");
+        assertThat(signature.signerDN()).isEqualTo("CN=Alice,O=Test");
+        assertThat(signature.signedAt()).isEqualTo(Instant.parse("2024-01-01T00:00:00Z"));
+        assertThat(signature.expirationDate()).isEqualTo(Instant.parse("2030-01-01T00:00:00Z"));
+        assertThat(signature.metadata()).containsEntry("role", "approver");
+        assertThat(signature.canonicalization()).isEqualTo("md-c14n-v1");
+        assertThat(signature.sections()).containsExactly("terms");
+    }
+
+    @Test
+    void roundTripsControlAndNonCharacterMetadata() {
+        String value = "a\u0080b\u009Fc\uFFFEd\uFFFFe\u0085f\u2028g\uD800h\uD83D\uDE00\t\u0000";
+        MarkdownDocument doc = MarkdownParser.parse("Body\n");
+        doc.addSignature(new DocumentSignature("QUJD", "CN=Alice,O=Test",
+                Instant.parse("2030-01-01T00:00:00Z"), Map.of("note\u0081", value),
+                Instant.parse("2024-01-01T00:00:00Z"), null, "md-c14n-v1", null, null));
+
+        String serialized = MarkdownParser.serialize(doc);
+        MarkdownDocument reparsed = MarkdownParser.parse(serialized);
+
+        assertThat(serialized).doesNotContain("\u0080", "\u009F", "\uFFFE", "\uFFFF").contains("\uD83D\uDE00");
+        assertThat(reparsed.getSignatures().get(0).metadata()).containsEntry("note\u0081", value);
+        assertThat(MarkdownParser.serialize(reparsed)).isEqualTo(serialized);
+    }
+}
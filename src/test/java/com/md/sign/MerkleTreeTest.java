@@ -0,0 +1,91 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class MerkleTreeTest {
+
+    private static List<byte[]> leaves(int count) {
+        List<byte[]> leaves = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            leaves.add(Digests.sha256(("leaf" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+        return leaves;
+    }
+
+    private static byte[] leaf(byte[] digest) {
+        byte[] input = new byte[1 + digest.length];
+        System.arraycopy(digest, 0, input, 1, digest.length);
+        return Digests.sha256(input);
+    }
+
+    private static byte[] node(byte[] left, byte[] right) {
+        byte[] input = new byte[1 + left.length + right.length];
+        input[0] = 0x01;
+        System.arraycopy(left, 0, input, 1, left.length);
+        System.arraycopy(right, 0, input, 1 + left.length, right.length);
+        return Digests.sha256(input);
+    }
+
+    @Test
+    void proofsRecomputeRootForEveryLeafAndSize() {
+        for (int count = 1; count <= 33; count++) {
+            List<byte[]> leaves = leaves(count);
+            MerkleTree tree = MerkleTree.build(leaves);
+
+            for (int i = 0; i < count; i++) {
+                MerkleProof proof = tree.proof(i);
+                assertThat(MerkleTree.rootFromProof(leaves.get(i), proof))
+                        .as("leaf %d of %d", i, count)
+                        .isEqualTo(tree.root());
+                assertThat(MerkleProof.fromASN1(proof.toASN1Primitive()).path())
+                        .containsExactlyElementsOf(proof.path());
+            }
+        }
+    }
+
+    @Test
+    void carriesLastNodeOfOddLevelUpUnchanged() {
+        List<byte[]> leaves = leaves(5);
+        MerkleTree tree = MerkleTree.build(leaves);
+
+        byte[] expected = node(
+                node(node(leaf(leaves.get(0)), leaf(leaves.get(1))), node(leaf(leaves.get(2)), leaf(leaves.get(3)))),
+                leaf(leaves.get(4)));
+
+        assertThat(tree.root()).isEqualTo(expected);
+        assertThat(tree.proof(4).path()).hasSize(1);
+        assertThat(MerkleTree.build(leaves(1)).root()).isEqualTo(leaf(leaves(1).get(0)));
+        assertThat(tree.proof(0).path()).hasSize(3);
+    }
+
+    @Test
+    void innerNodeIsNotAcceptedAsLeaf() {
+        List<byte[]> leaves = leaves(4);
+        MerkleTree tree = MerkleTree.build(leaves);
+        byte[] inner = node(leaf(leaves.get(0)), leaf(leaves.get(1)));
+
+        MerkleProof shortened = new MerkleProof(0, 2, List.of(tree.proof(0).path().get(1)));
+        assertThat(MerkleTree.rootFromProof(inner, shortened)).isNotEqualTo(tree.root());
+    }
+
+    @Test
+    void rejectsProofsForOtherLeavesOrSizes() {
+        List<byte[]> leaves = leaves(7);
+        MerkleTree tree = MerkleTree.build(leaves);
+        MerkleProof proof = tree.proof(6);
+
+        assertThat(MerkleTree.rootFromProof(leaves.get(5), proof)).isNotEqualTo(tree.root());
+        assertThatThrownBy(() -> MerkleTree.rootFromProof(leaves.get(6), new MerkleProof(6, 8, proof.path())))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> MerkleTree.rootFromProof(leaves.get(6),
+                new MerkleProof(6, 7, tree.proof(0).path())))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,61 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestTracerTest {
+
+    @Test
+    void linkedStagesOnAnotherThreadReachEveryRequestTrace() throws Exception {
+        RequestTracer tracer = new RequestTracer(1.0, 16, 16, 60_000, false);
+        try {
+            tracer.begin("first");
+            RequestTracer.TraceLink first = tracer.current();
+            tracer.begin("second");
+            RequestTracer.TraceLink second = tracer.current();
+
+            CompletableFuture.runAsync(() -> {
+                try (RequestTracer.Scope scope = tracer.link(Arrays.asList(first, second, first, null))) {
+                    tracer.end(RequestTracer.Stage.SIGN, tracer.start());
+                }
+                try (RequestTracer.Scope scope = tracer.link(second)) {
+                    tracer.end(RequestTracer.Stage.SERIALIZE, tracer.start());
+                }
+                assertThat(tracer.start()).isEqualTo(RequestTracer.NOT_SAMPLED);
+            }).get();
+
+            tracer.finish();
+            List<TraceRecord> traces = tracer.report(10).recentTraces();
+
+            assertThat(traces).extracting(TraceRecord::operation).containsExactly("second");
+            assertThat(traces.get(0).stageMicros()).containsOnlyKeys(
+                    RequestTracer.Stage.SIGN, RequestTracer.Stage.SERIALIZE);
+            assertThat(tracer.report(10).stages().get(RequestTracer.Stage.SIGN).count()).isEqualTo(1);
+        } finally {
+            tracer.close();
+        }
+    }
+
+    @Test
+    void scopeRestoresTheThreadsOwnTrace() {
+        RequestTracer tracer = new RequestTracer(1.0, 16, 16, 60_000, false);
+        try {
+            tracer.begin("request");
+            try (RequestTracer.Scope scope = tracer.link((RequestTracer.TraceLink) null)) {
+                tracer.end(RequestTracer.Stage.SIGN, tracer.start());
+            }
+            tracer.end(RequestTracer.Stage.PARSE, tracer.start());
+            tracer.finish();
+
+            assertThat(tracer.report(10).recentTraces().get(0).stageMicros())
+                    .containsOnlyKeys(RequestTracer.Stage.PARSE);
+        } finally {
+            tracer.close();
+        }
+    }
+}
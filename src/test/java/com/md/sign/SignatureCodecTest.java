@@ -0,0 +1,71 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SignatureCodecTest {
+
+    private static String encode(byte[] data) {
+        byte[] ascii = new byte[(data.length + 2) / 3 * 4];
+        SignatureCodec.encodeBase64(data, data.length, ascii);
+        return new String(ascii, StandardCharsets.ISO_8859_1);
+    }
+
+    private static byte[] decode(String base64) {
+        byte[] buffer = new byte[base64.length() / 4 * 3 + 3];
+        int length = SignatureCodec.decodeBase64(base64, buffer);
+        return Arrays.copyOf(buffer, length);
+    }
+
+    @Test
+    void encodesLikeJavaBase64ForEveryPaddingLength() {
+        Random random = new Random(42);
+        for (int length = 0; length <= 64; length++) {
+            byte[] data = new byte[length];
+            random.nextBytes(data);
+
+            String encoded = encode(data);
+
+            assertThat(encoded).isEqualTo(Base64.getEncoder().encodeToString(data));
+            assertThat(decode(encoded)).isEqualTo(data);
+        }
+    }
+
+    @Test
+    void decodesUnpaddedInputLikeJavaBase64() {
+        for (String input : new String[]{"QQ", "QUI", "QUJD"}) {
+            assertThat(decode(input)).isEqualTo(Base64.getDecoder().decode(input));
+        }
+    }
+
+    @Test
+    void skipsLineBreaksAndSpacesLikeMimeDecoder() {
+        byte[] data = new byte[200];
+        new Random(7).nextBytes(data);
+        String wrapped = Base64.getMimeEncoder(76, "\r\n".getBytes(StandardCharsets.US_ASCII)).encodeToString(data)
+                + "\n";
+        String spaced = Base64.getEncoder().encodeToString(data).replaceAll("(.{10})", "$1 ");
+
+        assertThat(decode(wrapped)).isEqualTo(Base64.getMimeDecoder().decode(wrapped)).isEqualTo(data);
+        assertThat(decode(spaced)).isEqualTo(data);
+    }
+
+    @Test
+    void rejectsInputJavaBase64Rejects() {
+        for (String input : new String[]{"QU*D", "QUJD\t", "Q", "QUJDR", "QQ=", "QUI==", "QUJD=", "QQ==QQ==", "QUJé"}) {
+            assertThatThrownBy(() -> Base64.getDecoder().decode(input))
+                    .as("java.util.Base64 on %s", input)
+                    .isInstanceOf(IllegalArgumentException.class);
+            assertThatThrownBy(() -> decode(input))
+                    .as("SignatureCodec on %s", input)
+                    .isInstanceOf(IllegalArgumentException.class);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SignatureIndexTest {
+
+    private static final Instant T0 = Instant.parse("2024-01-01T00:00:00Z");
+
+    @TempDir
+    Path directory;
+
+    private static byte[] digest(String content) {
+        return Digests.sha256(content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void findsSignaturesByDigestInRecordingOrder() {
+        SignatureIndex index = new SignatureIndex(true, "");
+        index.record(digest("a"), "CN=Alice", T0, T0.plusSeconds(60));
+        index.record(digest("a"), "CN=Bob", T0.plusSeconds(1), null);
+        index.record(digest("b"), "CN=Alice", T0.plusSeconds(2), null);
+
+        List<SignatureIndexEntry> entries = index.findByDigest(digest("a"));
+
+        assertThat(entries).extracting(SignatureIndexEntry::signerDN).containsExactly("CN=Alice", "CN=Bob");
+        assertThat(entries.get(0).expirationDate()).isEqualTo(T0.plusSeconds(60));
+        assertThat(entries.get(1).expirationDate()).isNull();
+        assertThat(index.findByDigest(digest("c"))).isEmpty();
+    }
+
+    @Test
+    void ignoresDuplicateRecords() {
+        SignatureIndex index = new SignatureIndex(true, "");
+        index.record(digest("a"), "CN=Alice", T0, null);
+        index.record(digest("a"), "CN=Alice", T0, null);
+
+        assertThat(index.size()).isEqualTo(1);
+    }
+
+    @Test
+    void findsSignerTimelineWithinRangeInTimeOrder() {
+        SignatureIndex index = new SignatureIndex(true, "");
+        index.record(digest("late"), "CN=Alice", T0.plusSeconds(30), null);
+        index.record(digest("early"), "CN=Alice", T0.plusSeconds(10), null);
+        index.record(digest("middle"), "CN=Alice", T0.plusSeconds(20), null);
+        index.record(digest("undated"), "CN=Alice", null, null);
+
+        assertThat(index.findBySigner("CN=Alice", null, null, 10))
+                .extracting(SignatureIndexEntry::contentDigest)
+                .containsExactly(Digests.toHex(digest("early")), Digests.toHex(digest("middle")),
+                        Digests.toHex(digest("late")));
+        assertThat(index.findBySigner("CN=Alice", T0.plusSeconds(20), T0.plusSeconds(30), 10))
+                .extracting(SignatureIndexEntry::contentDigest)
+                .containsExactly(Digests.toHex(digest("middle")), Digests.toHex(digest("late")));
+        assertThat(index.findBySigner("CN=Alice", null, null, 1)).hasSize(1);
+        assertThat(index.findBySigner("CN=Bob", null, null, 10)).isEmpty();
+    }
+
+    @Test
+    void growsBeyondInitialCapacity() {
+        SignatureIndex index = new SignatureIndex(true, "");
+        for (int i = 0; i < 1000; i++) {
+            index.record(digest("doc" + i), "CN=Signer" + (i % 20), T0.plusSeconds(i), null);
+        }
+
+        assertThat(index.size()).isEqualTo(1000);
+        for (int i = 0; i < 1000; i++) {
+            assertThat(index.findByDigest(digest("doc" + i)))
+                    .extracting(SignatureIndexEntry::signerDN)
+                    .containsExactly("CN=Signer" + (i % 20));
+        }
+        assertThat(index.findBySigner("CN=Signer3", null, null, 1000)).hasSize(50);
+    }
+
+    @Test
+    void replaysLogOnRestart() {
+        String path = directory.resolve("index.bin").toString();
+        SignatureIndex index = new SignatureIndex(true, path);
+        index.record(digest("a"), "CN=Alice", T0, null);
+        index.record(digest("a"), "CN=Bob", T0.plusSeconds(1), null);
+        index.close();
+
+        SignatureIndex reopened = new SignatureIndex(true, path);
+
+        assertThat(reopened.size()).isEqualTo(2);
+        assertThat(reopened.findByDigest(digest("a")))
+                .extracting(SignatureIndexEntry::signerDN)
+                .containsExactly("CN=Alice", "CN=Bob");
+        reopened.close();
+    }
+}
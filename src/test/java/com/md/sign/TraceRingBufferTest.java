@@ -0,0 +1,81 @@
+package com.md.sign;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TraceRingBufferTest {
+
+    private static List<Integer> drain(TraceRingBuffer<Integer> buffer) {
+        List<Integer> drained = new ArrayList<>();
+        buffer.drain(drained::add);
+        return drained;
+    }
+
+    @Test
+    void drainsInPublishingOrderAcrossWraps() {
+        TraceRingBuffer<Integer> buffer = new TraceRingBuffer<>(4);
+
+        for (int round = 0; round < 5; round++) {
+            for (int i = 0; i < 3; i++) {
+                buffer.publish(round * 3 + i);
+            }
+            assertThat(drain(buffer)).containsExactly(round * 3, round * 3 + 1, round * 3 + 2);
+        }
+        assertThat(drain(buffer)).isEmpty();
+        assertThat(buffer.dropped()).isZero();
+    }
+
+    @Test
+    void keepsNewestEntriesAndCountsOverwrittenOnes() {
+        TraceRingBuffer<Integer> buffer = new TraceRingBuffer<>(4);
+
+        for (int i = 0; i < 10; i++) {
+            buffer.publish(i);
+        }
+
+        assertThat(drain(buffer)).containsExactly(6, 7, 8, 9);
+        assertThat(buffer.dropped()).isEqualTo(6);
+
+        buffer.publish(10);
+        assertThat(drain(buffer)).containsExactly(10);
+        assertThat(buffer.dropped()).isEqualTo(6);
+    }
+
+    @Test
+    void roundsCapacityUpToPowerOfTwo() {
+        TraceRingBuffer<Integer> buffer = new TraceRingBuffer<>(5);
+
+        for (int i = 0; i < 8; i++) {
+            buffer.publish(i);
+        }
+
+        assertThat(drain(buffer)).hasSize(8);
+        assertThat(buffer.dropped()).isZero();
+    }
+
+    @Test
+    void keepsEveryEntryPublishedConcurrentlyWhenDrainedInTime() throws Exception {
+        TraceRingBuffer<Integer> buffer = new TraceRingBuffer<>(4096);
+        List<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int offset = t * 1000;
+            Thread thread = new Thread(() -> {
+                for (int i = 0; i < 1000; i++) {
+                    buffer.publish(offset + i);
+                }
+            });
+            threads.add(thread);
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+
+        assertThat(drain(buffer)).hasSize(4000).doesNotHaveDuplicates();
+        assertThat(buffer.dropped()).isZero();
+    }
+}